@@ -0,0 +1,90 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+// Tunes the NearDeviceCriteria search radius and result budget from watcher outcomes.
+// Searches start tight, which finds nearby anchors fastest. When a watcher finds too few
+// anchors the radius widens; when it fills its result budget the area is dense, so the
+// radius shrinks again, and once it is at its minimum the budget grows instead.
+// The tuned values are kept per location by NearDeviceSearchStore.
+class AdaptiveNearDeviceSearch {
+    static final float MIN_DISTANCE_METERS = 2.0f;
+    static final float MAX_DISTANCE_METERS = 32.0f;
+    static final float DEFAULT_DISTANCE_METERS = 4.0f;
+    static final int MIN_RESULT_COUNT = 10;
+    static final int MAX_RESULT_COUNT = 100;
+    static final int DEFAULT_RESULT_COUNT = 10;
+
+    // Fewer anchors than this and the watcher was not worth much
+    private static final int TOO_FEW_ANCHORS = 3;
+    private static final float WIDEN_FACTOR = 1.5f;
+    private static final float SHRINK_FACTOR = 0.75f;
+
+    private final String locationKey;
+    private float distanceInMeters;
+    private int maxResultCount;
+
+    private int watchCount = 0;
+    private long locatedAnchorCount = 0;
+    private int successfulWatchCount = 0;
+    private long totalTimeToFirstAnchorMillis = 0;
+
+    public AdaptiveNearDeviceSearch(String locationKey) {
+        this(locationKey, DEFAULT_DISTANCE_METERS, DEFAULT_RESULT_COUNT);
+    }
+
+    public AdaptiveNearDeviceSearch(String locationKey, float distanceInMeters, int maxResultCount) {
+        this.locationKey = locationKey;
+        this.distanceInMeters = clamp(distanceInMeters, MIN_DISTANCE_METERS, MAX_DISTANCE_METERS);
+        this.maxResultCount = Math.max(MIN_RESULT_COUNT, Math.min(MAX_RESULT_COUNT, maxResultCount));
+    }
+
+    public String getLocationKey() {
+        return locationKey;
+    }
+
+    public synchronized float getDistanceInMeters() {
+        return distanceInMeters;
+    }
+
+    public synchronized int getMaxResultCount() {
+        return maxResultCount;
+    }
+
+    // Adapts to a finished watcher. timeToFirstAnchorMillis is -1 if nothing was found.
+    public synchronized void recordWatch(int anchorsFound, long timeToFirstAnchorMillis) {
+        watchCount++;
+        locatedAnchorCount += anchorsFound;
+        if (timeToFirstAnchorMillis >= 0) {
+            successfulWatchCount++;
+            totalTimeToFirstAnchorMillis += timeToFirstAnchorMillis;
+        }
+
+        if (anchorsFound < TOO_FEW_ANCHORS) {
+            distanceInMeters = Math.min(MAX_DISTANCE_METERS, distanceInMeters * WIDEN_FACTOR);
+        } else if (anchorsFound >= maxResultCount) {
+            if (distanceInMeters > MIN_DISTANCE_METERS) {
+                distanceInMeters = Math.max(MIN_DISTANCE_METERS, distanceInMeters * SHRINK_FACTOR);
+            } else {
+                maxResultCount = Math.min(MAX_RESULT_COUNT, Math.round(maxResultCount * WIDEN_FACTOR));
+            }
+        }
+    }
+
+    public synchronized int getWatchCount() {
+        return watchCount;
+    }
+
+    public synchronized double getAnchorsPerWatch() {
+        return watchCount == 0 ? 0 : (double) locatedAnchorCount / watchCount;
+    }
+
+    // Average over the watchers that found anything, -1 if none did.
+    public synchronized long getAverageTimeToFirstAnchorMillis() {
+        return successfulWatchCount == 0 ? -1 : totalTimeToFirstAnchorMillis / successfulWatchCount;
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -107,7 +107,7 @@ public class AnchorCreationFragment extends Fragment {
         createAnchorButton.setEnabled(false);
         CloudSpatialAnchor cloudAnchor = new CloudSpatialAnchor();
         cloudAnchor.setLocalAnchor(placedVisual.getLocalAnchor());
-        cloudAnchor.getAppProperties().put("Shape", placedVisual.getShape().toString());
+        AnchorPropertiesCodec.put(cloudAnchor.getAppProperties(), AnchorVisual.SHAPE_PROPERTY, placedVisual.getShape());
 
         isCreatingAnchor = true;
         cloudAnchorManager
@@ -0,0 +1,103 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+// Decides how much detail each anchor gets from its distance to the camera.
+// Anchors beyond the cull radius are hidden. Of the rest, the nearest ones within the
+// full detail radius get full detail, up to the budget, and everything else is drawn
+// with a cheaper renderable. Works on squared distances so callers can skip the sqrt.
+class AnchorDetailPolicy {
+    enum DetailLevel {
+        Hidden,
+        Low,
+        Full,
+    }
+
+    private float cullRadius = 25.0f;
+    private float fullDetailRadius = 6.0f;
+    private int fullDetailBudget = 32;
+
+    private int[] candidates = new int[0];
+
+    public void setCullRadius(float meters) {
+        cullRadius = meters;
+    }
+
+    public float getCullRadius() {
+        return cullRadius;
+    }
+
+    public void setFullDetailRadius(float meters) {
+        fullDetailRadius = meters;
+    }
+
+    public void setFullDetailBudget(int anchorCount) {
+        if (anchorCount < 0) {
+            throw new IllegalArgumentException("The budget cannot be negative.");
+        }
+        fullDetailBudget = anchorCount;
+    }
+
+    // Fills levels[0..count) for the given squared distances.
+    public void classify(float[] distancesSquared, int count, DetailLevel[] levels) {
+        float cullSquared = cullRadius * cullRadius;
+        float fullSquared = fullDetailRadius * fullDetailRadius;
+        if (candidates.length < count) {
+            candidates = new int[count];
+        }
+
+        int candidateCount = 0;
+        for (int i = 0; i < count; i++) {
+            float distanceSquared = distancesSquared[i];
+            if (!(distanceSquared <= cullSquared)) {
+                levels[i] = DetailLevel.Hidden;
+            } else {
+                levels[i] = DetailLevel.Low;
+                if (distanceSquared <= fullSquared) {
+                    candidates[candidateCount++] = i;
+                }
+            }
+        }
+
+        int fullCount = Math.min(candidateCount, fullDetailBudget);
+        if (fullCount < candidateCount) {
+            selectNearest(distancesSquared, candidateCount, fullCount);
+        }
+        for (int i = 0; i < fullCount; i++) {
+            levels[candidates[i]] = DetailLevel.Full;
+        }
+    }
+
+    // Partially orders candidates so the k nearest come first, in linear time on average.
+    private void selectNearest(float[] distancesSquared, int candidateCount, int k) {
+        int left = 0;
+        int right = candidateCount - 1;
+        while (left < right) {
+            float pivot = distancesSquared[candidates[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (distancesSquared[candidates[i]] < pivot) {
+                    i++;
+                }
+                while (distancesSquared[candidates[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = candidates[i];
+                    candidates[i] = candidates[j];
+                    candidates[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k - 1 <= j) {
+                right = j;
+            } else if (k - 1 >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+}
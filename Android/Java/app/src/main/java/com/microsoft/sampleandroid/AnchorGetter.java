@@ -4,10 +4,6 @@ package com.microsoft.sampleandroid;
 
 import android.os.AsyncTask;
 
-import java.io.DataInputStream;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.function.Consumer;
 
 // Gets an anchor GUID from the service detailed in the
@@ -15,11 +11,11 @@ import java.util.function.Consumer;
 // Consumes the anchor number associated with the GUID for easier typing
 class AnchorGetter extends AsyncTask<String, Void, String>
 {
-    private final String baseAddress;
+    private final SharingServiceClient client;
     private final Consumer<String> anchorLocatedCallback;
 
     public AnchorGetter(String baseAddress, Consumer<String> anchorLocatedCallback) {
-        this.baseAddress = baseAddress;
+        this.client = new SharingServiceClient(baseAddress);
         this.anchorLocatedCallback = anchorLocatedCallback;
     }
 
@@ -35,37 +31,13 @@ class AnchorGetter extends AsyncTask<String, Void, String>
         }
     }
 
-    private String getAnchor(String AnchorNumber) {
-        String ret;
+    private String getAnchor(String anchorNumber) {
         try {
-            String anchorAddress = baseAddress+"/"+AnchorNumber;
-            URL url = new URL(anchorAddress);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-
-            int responseCode = connection.getResponseCode();
-            InputStream res = new DataInputStream(connection.getInputStream());
-
-            StringBuilder temp = new StringBuilder();
-            int readValue = -1;
-            do {
-                readValue = res.read();
-                if(readValue != -1)
-                {
-                    temp.append((char)readValue);
-                }
-            } while(readValue != -1);
-
-
-            ret = temp.toString();
-
-            connection.disconnect();
+            return client.getAnchor(anchorNumber);
         }
         catch(Exception e)
         {
-            ret = e.getMessage();
+            return e.getMessage();
         }
-
-        return ret;
     }
 }
@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+// Walks a list of anchor identifiers a page at a time.
+// Only the identifiers are held for the whole walk, each page's anchors are loaded when
+// the page is asked for, so dense areas with thousands of anchors never have more than
+// one page of anchor properties in memory.
+// One page at a time: nextPage may only be called once the previous page completed.
+class AnchorPageCursor<T> {
+    static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final List<String> identifiers;
+    private final int pageSize;
+    private final Function<String, CompletableFuture<T>> loader;
+    private int position = 0;
+
+    public AnchorPageCursor(List<String> identifiers, int pageSize, Function<String, CompletableFuture<T>> loader) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The page size must be positive.");
+        }
+        this.identifiers = new ArrayList<>(identifiers);
+        this.pageSize = pageSize;
+        this.loader = loader;
+    }
+
+    // Total number of anchors, known without loading any of them
+    public int getCount() {
+        return identifiers.size();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    // Anchors handed out so far
+    public synchronized int getPosition() {
+        return position;
+    }
+
+    public synchronized boolean hasNext() {
+        return position < identifiers.size();
+    }
+
+    // Loads the next page, its anchors are requested concurrently and keep the identifier order.
+    // Each anchor settles on its own: one that fails to load is null in the page, and the
+    // page still completes with the others.
+    public synchronized CompletableFuture<List<T>> nextPage() {
+        if (!hasNext()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        int end = Math.min(position + pageSize, identifiers.size());
+        List<CompletableFuture<T>> loads = new ArrayList<>(end - position);
+        for (int i = position; i < end; i++) {
+            loads.add(loader.apply(identifiers.get(i)).exceptionally(ex -> null));
+        }
+        position = end;
+
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignore -> {
+                    List<T> page = new ArrayList<>(loads.size());
+                    for (CompletableFuture<T> load : loads) {
+                        page.add(load.join());
+                    }
+                    return page;
+                });
+    }
+}
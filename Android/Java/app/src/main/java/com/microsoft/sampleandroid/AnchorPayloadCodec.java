@@ -0,0 +1,172 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Compact binary encoding of sharing service payloads, negotiated with the service
+// through the Accept and Content-Type headers. The layout matches the sample service:
+//   byte    format version (1)
+//   varint  anchor count
+//   per anchor:
+//     varint  anchor number
+//     byte    0 = GUID, followed by its 16 bytes in canonical (big-endian) order
+//             1 = other identifier, followed by a varint length and UTF-8 bytes
+// Varints are unsigned LEB128. Batch bodies may additionally be gzip-compressed
+// and flagged with Content-Encoding: gzip.
+final class AnchorPayloadCodec {
+    static final String CONTENT_TYPE = "application/vnd.microsoft.spatialanchors.anchors+binary";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int KIND_GUID = 0;
+    private static final int KIND_STRING = 1;
+
+    private AnchorPayloadCodec() {
+    }
+
+    static byte[] encode(List<SharedAnchor> anchors) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(2 + anchors.size() * 20);
+        output.write(FORMAT_VERSION);
+        writeVarint(output, anchors.size());
+        for (SharedAnchor anchor : anchors) {
+            writeVarint(output, anchor.getAnchorNumber());
+            String anchorId = anchor.getAnchorId();
+            UUID guid = toCanonicalGuid(anchorId);
+            if (guid != null) {
+                output.write(KIND_GUID);
+                writeLong(output, guid.getMostSignificantBits());
+                writeLong(output, guid.getLeastSignificantBits());
+            } else {
+                byte[] bytes = anchorId.getBytes(StandardCharsets.UTF_8);
+                output.write(KIND_STRING);
+                writeVarint(output, bytes.length);
+                output.write(bytes, 0, bytes.length);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    static List<SharedAnchor> decode(byte[] payload) throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(payload);
+        int version = input.read();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported anchor payload version " + version);
+        }
+
+        long count = readVarint(input);
+        // Every anchor takes at least three bytes, reject counts the payload cannot hold
+        if (count > input.available() / 3) {
+            throw new IOException("Malformed anchor payload");
+        }
+
+        List<SharedAnchor> anchors = new ArrayList<>((int) count);
+        for (long i = 0; i < count; i++) {
+            long anchorNumber = readVarint(input);
+            int kind = input.read();
+            String anchorId;
+            if (kind == KIND_GUID) {
+                anchorId = new UUID(readLong(input), readLong(input)).toString();
+            } else if (kind == KIND_STRING) {
+                long length = readVarint(input);
+                if (length > input.available()) {
+                    throw new IOException("Malformed anchor payload");
+                }
+                byte[] bytes = new byte[(int) length];
+                input.read(bytes, 0, bytes.length);
+                anchorId = new String(bytes, StandardCharsets.UTF_8);
+            } else {
+                throw new IOException("Unknown anchor identifier kind " + kind);
+            }
+            anchors.add(new SharedAnchor(anchorNumber, anchorId));
+        }
+        return anchors;
+    }
+
+    static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(payload.length / 2 + 32);
+        try (GZIPOutputStream compressed = new GZIPOutputStream(output)) {
+            compressed.write(payload);
+        }
+        return output.toByteArray();
+    }
+
+    static byte[] gunzip(byte[] payload) throws IOException {
+        try (GZIPInputStream decompressed = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return SharingServiceClient.readAll(decompressed);
+        }
+    }
+
+    static boolean isBinaryContentType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        // Case-insensitive without the default locale, whose rules may not map 'I' to 'i'
+        String trimmed = contentType.trim();
+        return trimmed.regionMatches(true, 0, CONTENT_TYPE, 0, CONTENT_TYPE.length());
+    }
+
+    // Only identifiers that survive the round trip exactly are packed as 16 bytes.
+    private static UUID toCanonicalGuid(String anchorId) {
+        if (anchorId.length() != 36) {
+            return null;
+        }
+        try {
+            UUID guid = UUID.fromString(anchorId);
+            return guid.toString().equals(anchorId) ? guid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Anchor numbers are never negative");
+        }
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static long readVarint(ByteArrayInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.read();
+            if (b < 0) {
+                throw new IOException("Truncated anchor payload");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in anchor payload");
+    }
+
+    private static void writeLong(ByteArrayOutputStream output, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            output.write((int) (value >>> shift));
+        }
+    }
+
+    private static long readLong(ByteArrayInputStream input) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = input.read();
+            if (b < 0) {
+                throw new IOException("Truncated anchor payload");
+            }
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,8 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+interface AnchorPostListener {
+    void onAnchorPosted(SharedAnchor postedAnchor);
+    void onAnchorPostDeferred(String anchorId, int pendingCount);
+}
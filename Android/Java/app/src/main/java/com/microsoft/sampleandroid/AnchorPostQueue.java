@@ -0,0 +1,255 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Durable queue of anchor GUIDs waiting to be posted to the sharing service.
+// Every anchor is written to an append-only journal before the first attempt, so anchors
+// survive process death and are posted once the app runs again. Pending anchors are
+// flushed on a background thread up to BATCH_SIZE per run, one POST each since the
+// service takes a single anchor per request, with exponential backoff while the service
+// cannot be reached. The same GUID is only queued once, and the sharing service hands
+// back the existing number when a retry re-posts an anchor it already has.
+//
+// Journal lines are "+<anchorId>" when an anchor is queued and "-<anchorId>" once it was posted.
+class AnchorPostQueue {
+    private static final int BATCH_SIZE = 8;
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+    // Rewrite the journal once it holds this many completed entries
+    private static final int COMPACT_THRESHOLD = 64;
+
+    private final File journal;
+    private final SharingServiceClient client;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AnchorPostQueue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private final LinkedHashSet<String> pending = new LinkedHashSet<>();
+    private int completedInJournal = 0;
+    private long backoffMillis = 0;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private volatile AnchorPostListener listener;
+    private volatile long postedCount = 0;
+    private volatile long failedAttemptCount = 0;
+
+    public AnchorPostQueue(File journal, SharingServiceClient client) throws IOException {
+        this.journal = journal;
+        this.client = client;
+        load();
+        if (!pending.isEmpty()) {
+            scheduleFlush(0);
+        }
+    }
+
+    public void setListener(AnchorPostListener listener) {
+        this.listener = listener;
+    }
+
+    // Durably queues the anchor and starts posting it. Returns false if it was already queued.
+    public boolean enqueue(String anchorId) throws IOException {
+        if (anchorId == null || anchorId.isEmpty() || anchorId.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Invalid anchor id");
+        }
+
+        synchronized (this) {
+            if (pending.contains(anchorId)) {
+                return false;
+            }
+            appendToJournal("+" + anchorId);
+            pending.add(anchorId);
+            backoffMillis = 0;
+        }
+        scheduleFlush(0);
+        return true;
+    }
+
+    // Retries right away, for example when connectivity returns.
+    public void flushNow() {
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            backoffMillis = 0;
+        }
+        scheduleFlush(0);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized List<String> getPendingAnchorIds() {
+        return new ArrayList<>(pending);
+    }
+
+    public long getPostedCount() {
+        return postedCount;
+    }
+
+    public long getFailedAttemptCount() {
+        return failedAttemptCount;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private synchronized void scheduleFlush(long delayMillis) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        if (scheduledFlush != null && !scheduledFlush.isDone()) {
+            if (scheduledFlush.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) {
+                return;
+            }
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = executor.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        List<String> batch;
+        synchronized (this) {
+            // This run is under way, later requests need a run of their own
+            scheduledFlush = null;
+            batch = new ArrayList<>(Math.min(BATCH_SIZE, pending.size()));
+            for (String anchorId : pending) {
+                if (batch.size() == BATCH_SIZE) {
+                    break;
+                }
+                batch.add(anchorId);
+            }
+        }
+
+        for (String anchorId : batch) {
+            long anchorNumber;
+            try {
+                anchorNumber = Long.parseLong(client.postAnchor(anchorId).trim());
+            } catch (Exception e) {
+                onPostFailed(anchorId);
+                return;
+            }
+
+            try {
+                markPosted(anchorId);
+            } catch (IOException e) {
+                // The anchor stays queued and the service hands back the same number on retry
+                onPostFailed(anchorId);
+                return;
+            }
+
+            postedCount++;
+            AnchorPostListener currentListener = listener;
+            if (currentListener != null) {
+                currentListener.onAnchorPosted(new SharedAnchor(anchorNumber, anchorId));
+            }
+        }
+
+        synchronized (this) {
+            backoffMillis = 0;
+            if (!pending.isEmpty()) {
+                scheduleFlush(0);
+            }
+        }
+    }
+
+    private void onPostFailed(String anchorId) {
+        failedAttemptCount++;
+        int pendingCount;
+        long delay;
+        synchronized (this) {
+            backoffMillis = backoffMillis == 0 ? MIN_BACKOFF_MILLIS : Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+            delay = backoffMillis;
+            pendingCount = pending.size();
+        }
+
+        AnchorPostListener currentListener = listener;
+        if (currentListener != null) {
+            currentListener.onAnchorPostDeferred(anchorId, pendingCount);
+        }
+        scheduleFlush(delay);
+    }
+
+    private synchronized void markPosted(String anchorId) throws IOException {
+        appendToJournal("-" + anchorId);
+        pending.remove(anchorId);
+        completedInJournal++;
+        if (completedInJournal >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    private void load() throws IOException {
+        if (!journal.exists()) {
+            return;
+        }
+
+        String contents;
+        try (FileInputStream input = new FileInputStream(journal)) {
+            contents = new String(SharingServiceClient.readAll(input), StandardCharsets.UTF_8);
+        }
+
+        // Text after the last newline is a torn write, that anchor was never acknowledged to the caller
+        int start = 0;
+        int end;
+        while ((end = contents.indexOf('\n', start)) >= 0) {
+            String line = contents.substring(start, end);
+            start = end + 1;
+            if (line.length() < 2) {
+                continue;
+            }
+            String anchorId = line.substring(1);
+            if (line.charAt(0) == '+') {
+                pending.add(anchorId);
+            } else if (line.charAt(0) == '-') {
+                pending.remove(anchorId);
+                completedInJournal++;
+            }
+        }
+
+        if (completedInJournal >= COMPACT_THRESHOLD || start < contents.length()) {
+            compact();
+        }
+    }
+
+    // Rewrites the journal with only the pending anchors, then atomically replaces it.
+    private void compact() throws IOException {
+        File compacted = new File(journal.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(compacted)) {
+            StringBuilder lines = new StringBuilder();
+            for (String anchorId : pending) {
+                lines.append('+').append(anchorId).append('\n');
+            }
+            output.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            output.getFD().sync();
+        }
+        if (!compacted.renameTo(journal)) {
+            throw new IOException("Could not replace " + journal);
+        }
+        completedInJournal = 0;
+    }
+
+    private void appendToJournal(String line) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(journal, true)) {
+            output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            output.getFD().sync();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.lang.reflect.Array;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Typed fields over the string map of cloud anchor app properties.
+// Each field knows its key, how to write its value and how to read it back, and reads
+// never throw: a missing or malformed value gives the field's default, so enumerating
+// many anchors does not allocate an exception per bad property. Enum names are looked
+// up in a table built once. The fields themselves are declared next to their types,
+// like AnchorVisual.SHAPE_PROPERTY.
+// Writes stamp the schema version and enforce size limits, the properties travel with
+// every anchor a query returns, so they are kept small. Anchors written before the
+// version stamp read as version 0 and decode the same way, the shape was always stored
+// by enum name.
+final class AnchorPropertiesCodec {
+    static final int VERSION = 1;
+    static final String VERSION_KEY = "PropertiesVersion";
+
+    // Longest value of a single property, in characters
+    static final int MAX_VALUE_LENGTH = 256;
+    // Keys and values of all properties together, in characters
+    static final int MAX_TOTAL_LENGTH = 1024;
+
+    abstract static class Field<T> {
+        private final String key;
+        private final T defaultValue;
+
+        Field(String key, T defaultValue) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public T getDefaultValue() {
+            return defaultValue;
+        }
+
+        abstract String format(T value);
+
+        // Null when the text is not a valid value
+        abstract T parse(String text);
+    }
+
+    private AnchorPropertiesCodec() {
+    }
+
+    static <E extends Enum<E>> Field<E> enumField(String key, Class<E> type, E defaultValue) {
+        HashMap<String, E> byName = new HashMap<>();
+        for (E constant : type.getEnumConstants()) {
+            byName.put(constant.name(), constant);
+        }
+        return new Field<E>(key, defaultValue) {
+            @Override
+            String format(E value) {
+                return value.name();
+            }
+
+            @Override
+            E parse(String text) {
+                return byName.get(text);
+            }
+        };
+    }
+
+    static Field<Integer> intField(String key, int defaultValue) {
+        return new Field<Integer>(key, defaultValue) {
+            @Override
+            String format(Integer value) {
+                return Integer.toString(value);
+            }
+
+            @Override
+            Integer parse(String text) {
+                return parseInt(text);
+            }
+        };
+    }
+
+    static Field<Boolean> booleanField(String key, boolean defaultValue) {
+        return new Field<Boolean>(key, defaultValue) {
+            @Override
+            String format(Boolean value) {
+                return value ? "1" : "0";
+            }
+
+            @Override
+            Boolean parse(String text) {
+                return "1".equals(text) ? Boolean.TRUE : "0".equals(text) ? Boolean.FALSE : null;
+            }
+        };
+    }
+
+    static Field<String> stringField(String key, String defaultValue) {
+        return new Field<String>(key, defaultValue) {
+            @Override
+            String format(String value) {
+                return value;
+            }
+
+            @Override
+            String parse(String text) {
+                return text;
+            }
+        };
+    }
+
+    // Writes the field, throws IllegalArgumentException when a size limit would be exceeded.
+    static <T> void put(Map<String, String> properties, Field<T> field, T value) {
+        String text = field.format(value);
+        if (text.length() > MAX_VALUE_LENGTH) {
+            throw new IllegalArgumentException("The " + field.getKey() + " property is longer than "
+                    + MAX_VALUE_LENGTH + " characters.");
+        }
+
+        String version = Integer.toString(VERSION);
+        int total = 0;
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            String key = entry.getKey();
+            if (!key.equals(field.getKey()) && !key.equals(VERSION_KEY)) {
+                total += key.length() + entry.getValue().length();
+            }
+        }
+        total += field.getKey().length() + text.length() + VERSION_KEY.length() + version.length();
+        if (total > MAX_TOTAL_LENGTH) {
+            throw new IllegalArgumentException("The anchor properties would be longer than "
+                    + MAX_TOTAL_LENGTH + " characters.");
+        }
+
+        properties.put(field.getKey(), text);
+        properties.put(VERSION_KEY, version);
+    }
+
+    // The field's value, or its default when missing or malformed.
+    static <T> T get(Map<String, String> properties, Field<T> field) {
+        String text = properties.get(field.getKey());
+        if (text == null) {
+            return field.getDefaultValue();
+        }
+        T value = field.parse(text);
+        return value != null ? value : field.getDefaultValue();
+    }
+
+    // True when the properties hold a valid value for the field.
+    static <T> boolean has(Map<String, String> properties, Field<T> field) {
+        String text = properties.get(field.getKey());
+        return text != null && field.parse(text) != null;
+    }
+
+    // Schema version the properties were written with, 0 before versioning.
+    static int getVersion(Map<String, String> properties) {
+        String text = properties.get(VERSION_KEY);
+        Integer version = text == null ? null : parseInt(text);
+        return version == null ? 0 : version;
+    }
+
+    // Reads one field from the properties of many anchors into values, in order.
+    @SuppressWarnings("unchecked")
+    static <T> T[] getAll(List<? extends Map<String, String>> properties, Field<T> field, T[] values) {
+        if (values.length < properties.size()) {
+            values = (T[]) Array.newInstance(values.getClass().getComponentType(), properties.size());
+        }
+        for (int i = 0; i < properties.size(); i++) {
+            values[i] = get(properties.get(i), field);
+        }
+        return values;
+    }
+
+    // Decimal int without allocating an exception, null when malformed or out of range.
+    private static Integer parseInt(String text) {
+        int length = text.length();
+        if (length == 0 || length > 11) {
+            return null;
+        }
+        boolean negative = text.charAt(0) == '-';
+        int start = negative ? 1 : 0;
+        if (start == length) {
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return null;
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,294 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Uniform grid over anchor world positions for radius and k-nearest queries.
+// Anchors are bucketed into cubic cells, so a query only looks at the cells it overlaps
+// instead of every anchor. Moving an anchor within its cell just updates its position,
+// and anchor poses only drift by centimeters as tracking refines them, so updates are cheap.
+// Sparse cells live in a hash map, the grid has no bounds.
+class AnchorSpatialIndex<T> {
+    private static final float DEFAULT_CELL_SIZE = 2.0f;
+    // Cell coordinates are packed into 21 bits each
+    private static final int COORDINATE_BITS = 21;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+
+    private static final class Entry<T> {
+        final T item;
+        float x;
+        float y;
+        float z;
+        long cellKey;
+        long generation;
+        float distanceSquared;
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    private final float cellSize;
+    private final HashMap<T, Entry<T>> entries = new HashMap<>();
+    private final HashMap<Long, ArrayList<Entry<T>>> cells = new HashMap<>();
+
+    // Bounds of the occupied cells, lets nearest queries know when to stop widening
+    private int minCellX;
+    private int minCellY;
+    private int minCellZ;
+    private int maxCellX;
+    private int maxCellY;
+    private int maxCellZ;
+
+    public AnchorSpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public AnchorSpatialIndex(float cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("The cell size must be positive.");
+        }
+        this.cellSize = cellSize;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Adds the item or moves it to the new position.
+    public void update(T item, float x, float y, float z) {
+        update(item, x, y, z, 0);
+    }
+
+    // Like update, and stamps the item with a generation for removeOlderThan.
+    public synchronized void update(T item, float x, float y, float z, long generation) {
+        Entry<T> entry = entries.get(item);
+        long cellKey = cellKey(x, y, z);
+        if (entry == null) {
+            entry = new Entry<>(item);
+            entries.put(item, entry);
+            addToCell(entry, cellKey);
+        } else if (entry.cellKey != cellKey) {
+            removeFromCell(entry);
+            addToCell(entry, cellKey);
+        }
+        entry.x = x;
+        entry.y = y;
+        entry.z = z;
+        entry.cellKey = cellKey;
+        entry.generation = generation;
+    }
+
+    public synchronized boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        removeFromCell(entry);
+        return true;
+    }
+
+    // Removes every item last updated before the given generation.
+    public synchronized void removeOlderThan(long generation) {
+        Iterator<Entry<T>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<T> entry = iterator.next();
+            if (entry.generation < generation) {
+                iterator.remove();
+                removeFromCell(entry);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cells.clear();
+    }
+
+    // Adds every item within the radius to results, in no particular order.
+    public synchronized void queryRadius(float x, float y, float z, float radius, List<T> results) {
+        float radiusSquared = radius * radius;
+        int fromX = Math.max(cellCoordinate(x - radius), minCellX);
+        int fromY = Math.max(cellCoordinate(y - radius), minCellY);
+        int fromZ = Math.max(cellCoordinate(z - radius), minCellZ);
+        int toX = Math.min(cellCoordinate(x + radius), maxCellX);
+        int toY = Math.min(cellCoordinate(y + radius), maxCellY);
+        int toZ = Math.min(cellCoordinate(z + radius), maxCellZ);
+        for (int cx = fromX; cx <= toX; cx++) {
+            for (int cy = fromY; cy <= toY; cy++) {
+                for (int cz = fromZ; cz <= toZ; cz++) {
+                    ArrayList<Entry<T>> cell = cells.get(pack(cx, cy, cz));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size(); i++) {
+                        Entry<T> entry = cell.get(i);
+                        if (distanceSquared(entry, x, y, z) <= radiusSquared) {
+                            results.add(entry.item);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Adds the k items nearest to the point to results, nearest first.
+    public synchronized void queryNearest(float x, float y, float z, int k, List<T> results) {
+        if (k <= 0 || entries.isEmpty()) {
+            return;
+        }
+
+        // Max heap of the best candidates so far
+        PriorityQueue<Entry<T>> best = new PriorityQueue<>(k,
+                (a, b) -> Float.compare(b.distanceSquared, a.distanceSquared));
+        int centerX = cellCoordinate(x);
+        int centerY = cellCoordinate(y);
+        int centerZ = cellCoordinate(z);
+        int maxRing = Math.max(
+                Math.max(Math.max(centerX - minCellX, maxCellX - centerX),
+                        Math.max(centerY - minCellY, maxCellY - centerY)),
+                Math.max(centerZ - minCellZ, maxCellZ - centerZ));
+
+        // Visit shells of cells around the query cell, nearest shell first
+        long visitedCells = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            long side = 2L * ring + 1;
+            long shellCells = side * side * side - (side - 2) * (side - 2) * (side - 2);
+            visitedCells += ring == 0 ? 1 : shellCells;
+            if (visitedCells > entries.size() + cells.size()) {
+                // Far from every anchor, empty cells would cost more than looking at each anchor
+                best.clear();
+                for (Entry<T> entry : entries.values()) {
+                    collect(entry, x, y, z, k, best);
+                }
+                break;
+            }
+
+            for (int cx = centerX - ring; cx <= centerX + ring; cx++) {
+                for (int cy = centerY - ring; cy <= centerY + ring; cy++) {
+                    boolean onShell = cx == centerX - ring || cx == centerX + ring
+                            || cy == centerY - ring || cy == centerY + ring;
+                    int step = onShell ? 1 : Math.max(1, 2 * ring);
+                    for (int cz = centerZ - ring; cz <= centerZ + ring; cz += step) {
+                        collect(cells.get(pack(cx, cy, cz)), x, y, z, k, best);
+                    }
+                }
+            }
+
+            // Anything outside the visited shells is at least this far away
+            float reach = ring * cellSize;
+            if (best.size() == k && best.peek().distanceSquared <= reach * reach) {
+                break;
+            }
+        }
+
+        int start = results.size();
+        while (!best.isEmpty()) {
+            results.add(best.poll().item);
+        }
+        // The heap hands out the farthest first
+        for (int i = start, j = results.size() - 1; i < j; i++, j--) {
+            T swap = results.get(i);
+            results.set(i, results.get(j));
+            results.set(j, swap);
+        }
+    }
+
+    private void collect(ArrayList<Entry<T>> cell, float x, float y, float z, int k, PriorityQueue<Entry<T>> best) {
+        if (cell == null) {
+            return;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+            collect(cell.get(i), x, y, z, k, best);
+        }
+    }
+
+    private void collect(Entry<T> entry, float x, float y, float z, int k, PriorityQueue<Entry<T>> best) {
+        float distanceSquared = distanceSquared(entry, x, y, z);
+        if (best.size() < k) {
+            entry.distanceSquared = distanceSquared;
+            best.add(entry);
+        } else if (distanceSquared < best.peek().distanceSquared) {
+            best.poll();
+            entry.distanceSquared = distanceSquared;
+            best.add(entry);
+        }
+    }
+
+    private void addToCell(Entry<T> entry, long cellKey) {
+        ArrayList<Entry<T>> cell = cells.get(cellKey);
+        if (cell == null) {
+            cell = new ArrayList<>(4);
+            cells.put(cellKey, cell);
+            growBounds(cellKey);
+        }
+        cell.add(entry);
+        entry.cellKey = cellKey;
+    }
+
+    private void removeFromCell(Entry<T> entry) {
+        ArrayList<Entry<T>> cell = cells.get(entry.cellKey);
+        if (cell == null) {
+            return;
+        }
+        // Order within a cell does not matter, swap with the last to avoid shifting
+        int index = cell.indexOf(entry);
+        int last = cell.size() - 1;
+        cell.set(index, cell.get(last));
+        cell.remove(last);
+        if (cell.isEmpty()) {
+            cells.remove(entry.cellKey);
+        }
+    }
+
+    private void growBounds(long cellKey) {
+        int cx = unpack(cellKey, 2);
+        int cy = unpack(cellKey, 1);
+        int cz = unpack(cellKey, 0);
+        if (cells.size() == 1) {
+            minCellX = maxCellX = cx;
+            minCellY = maxCellY = cy;
+            minCellZ = maxCellZ = cz;
+            return;
+        }
+        // Bounds only grow, they stay correct, just looser, when cells empty out
+        minCellX = Math.min(minCellX, cx);
+        minCellY = Math.min(minCellY, cy);
+        minCellZ = Math.min(minCellZ, cz);
+        maxCellX = Math.max(maxCellX, cx);
+        maxCellY = Math.max(maxCellY, cy);
+        maxCellZ = Math.max(maxCellZ, cz);
+    }
+
+    private static float distanceSquared(Entry<?> entry, float x, float y, float z) {
+        float dx = entry.x - x;
+        float dy = entry.y - y;
+        float dz = entry.z - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int cellCoordinate(float value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private long cellKey(float x, float y, float z) {
+        return pack(cellCoordinate(x), cellCoordinate(y), cellCoordinate(z));
+    }
+
+    private static long pack(int cx, int cy, int cz) {
+        return ((cx & COORDINATE_MASK) << (2 * COORDINATE_BITS))
+                | ((cy & COORDINATE_MASK) << COORDINATE_BITS)
+                | (cz & COORDINATE_MASK);
+    }
+
+    private static int unpack(long key, int slot) {
+        long bits = (key >>> (slot * COORDINATE_BITS)) & COORDINATE_MASK;
+        // Sign extend the 21 bit coordinate
+        return (int) (bits << (64 - COORDINATE_BITS) >> (64 - COORDINATE_BITS));
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+// Pushes anchors posted to the sharing service to the device as they arrive,
+// by long-polling api/anchors/updates on a background thread.
+// After a dropped connection it reconnects with exponential backoff and resumes
+// from the last anchor number it delivered, so no anchor is reported twice.
+// When the service numbers anchors from scratch again, e.g. after a restart, the
+// subscription follows the new numbering. Anchors the service dropped before they could
+// be delivered are reported to the missed anchors listener.
+// The listener is invoked on the subscription thread.
+class AnchorSubscription {
+    private static final int POLL_TIMEOUT_SECONDS = 30;
+    private static final long MIN_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final SharingServiceClient client;
+    private final Consumer<SharedAnchor> anchorPostedListener;
+    private volatile Runnable missedAnchorsListener = () -> { };
+
+    private volatile Long version;
+    private volatile Thread pollThread;
+    private volatile long reconnectCount = 0;
+    private volatile long missedCount = 0;
+
+    public AnchorSubscription(SharingServiceClient client, Consumer<SharedAnchor> anchorPostedListener) {
+        this.client = client;
+        this.anchorPostedListener = anchorPostedListener;
+    }
+
+    // Called on the subscription thread when anchors were posted faster than the service
+    // keeps them, so some were never delivered.
+    public void setMissedAnchorsListener(Runnable listener) {
+        missedAnchorsListener = listener;
+    }
+
+    // Starts delivering anchors posted from now on.
+    public void start() {
+        start(null);
+    }
+
+    // Starts delivering anchors numbered above sinceAnchorNumber, or posted from now on when null.
+    public synchronized void start(Long sinceAnchorNumber) {
+        if (pollThread != null) {
+            return;
+        }
+
+        version = sinceAnchorNumber;
+        Thread thread = new Thread(this::pollLoop, "AnchorSubscription");
+        thread.setDaemon(true);
+        pollThread = thread;
+        thread.start();
+    }
+
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = pollThread;
+            pollThread = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return pollThread != null;
+    }
+
+    // The number of the last anchor delivered, or null if nothing was delivered yet.
+    public Long getVersion() {
+        return version;
+    }
+
+    public long getReconnectCount() {
+        return reconnectCount;
+    }
+
+    // Responses that reported anchors dropped before they were delivered
+    public long getMissedCount() {
+        return missedCount;
+    }
+
+    private void pollLoop() {
+        long backoffMillis = MIN_BACKOFF_MILLIS;
+        Thread self = Thread.currentThread();
+
+        while (pollThread == self) {
+            try {
+                SharingServiceClient.AnchorUpdates updates = client.getAnchorUpdates(version, POLL_TIMEOUT_SECONDS);
+                if (pollThread != self) {
+                    return;
+                }
+
+                Long current = version;
+                if (current != null && updates.getVersion() < current) {
+                    // The numbering started over, our number means nothing to the service anymore
+                    current = null;
+                }
+                if (updates.hasMissedAnchors()) {
+                    missedCount++;
+                    missedAnchorsListener.run();
+                }
+                for (SharedAnchor anchor : updates.getAnchors()) {
+                    if (current == null || anchor.getAnchorNumber() > current) {
+                        current = anchor.getAnchorNumber();
+                        version = current;
+                        anchorPostedListener.accept(anchor);
+                    }
+                }
+                if (current == null || updates.getVersion() > current) {
+                    current = updates.getVersion();
+                }
+                version = current;
+
+                backoffMillis = MIN_BACKOFF_MILLIS;
+            } catch (Exception e) {
+                if (pollThread != self) {
+                    return;
+                }
+
+                reconnectCount++;
+                try {
+                    // Jitter keeps a hall full of devices from reconnecting in lockstep
+                    Thread.sleep(backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1));
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+// Per frame visibility pass over the anchor visuals, run from the scene's update listener.
+// Anchor positions go into a spatial index, refreshed every few frames or when visuals
+// come and go, since anchors only drift by centimeters as tracking refines them. Each
+// frame then only measures the anchors the index finds within the cull radius of the
+// camera, and applies the level picked by the policy. Anchors that left the radius since
+// the last frame are hidden, and each refresh of the index hides everything else that
+// was not shown, so anchors that never came near the camera are hidden as well.
+// Only runs on the UI thread.
+class AnchorVisibilityPass {
+    private static final int REINDEX_INTERVAL_FRAMES = 30;
+    // Covers anchor drift between refreshes of the index
+    private static final float DRIFT_MARGIN_METERS = 1.0f;
+
+    private final AnchorDetailPolicy policy = new AnchorDetailPolicy();
+    private final AnchorSpatialIndex<VisibilityTarget> spatialIndex = new AnchorSpatialIndex<>();
+    private long frame = 0;
+    private long indexedFrame = Long.MIN_VALUE / 2;
+    private int indexedCount = 0;
+    // Which targets the index was built from, see membershipHash
+    private int seenCount = -1;
+    private long seenHash = 0;
+
+    private final float[] position = new float[3];
+    private final ArrayList<VisibilityTarget> nearby = new ArrayList<>();
+    private Set<VisibilityTarget> shown = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Set<VisibilityTarget> stillShown = Collections.newSetFromMap(new IdentityHashMap<>());
+    private float[] distancesSquared = new float[0];
+    private AnchorDetailPolicy.DetailLevel[] levels = new AnchorDetailPolicy.DetailLevel[0];
+
+    private int hiddenCount = 0;
+    private int lowDetailCount = 0;
+    private int fullDetailCount = 0;
+
+    public AnchorDetailPolicy getPolicy() {
+        return policy;
+    }
+
+    public AnchorSpatialIndex<VisibilityTarget> getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    public void run(float cameraX, float cameraY, float cameraZ, Collection<? extends VisibilityTarget> targets) {
+        frame++;
+        long hash = membershipHash(targets);
+        if (targets.size() != seenCount || hash != seenHash
+                || frame - indexedFrame >= REINDEX_INTERVAL_FRAMES) {
+            reindex(targets);
+            seenCount = targets.size();
+            seenHash = hash;
+        }
+
+        nearby.clear();
+        spatialIndex.queryRadius(cameraX, cameraY, cameraZ,
+                policy.getCullRadius() + DRIFT_MARGIN_METERS, nearby);
+        if (distancesSquared.length < nearby.size()) {
+            int capacity = Math.max(nearby.size(), distancesSquared.length * 2);
+            distancesSquared = new float[capacity];
+            levels = new AnchorDetailPolicy.DetailLevel[capacity];
+        }
+
+        int count = 0;
+        for (int i = 0; i < nearby.size(); i++) {
+            VisibilityTarget target = nearby.get(i);
+            if (!target.getWorldPosition(position)) {
+                // Destroyed since the last refresh
+                spatialIndex.remove(target);
+                indexedCount--;
+                continue;
+            }
+            float dx = position[0] - cameraX;
+            float dy = position[1] - cameraY;
+            float dz = position[2] - cameraZ;
+            distancesSquared[count] = dx * dx + dy * dy + dz * dz;
+            nearby.set(count++, target);
+        }
+
+        policy.classify(distancesSquared, count, levels);
+
+        lowDetailCount = 0;
+        fullDetailCount = 0;
+        for (int i = 0; i < count; i++) {
+            VisibilityTarget target = nearby.get(i);
+            switch (levels[i]) {
+                case Low:
+                    lowDetailCount++;
+                    break;
+                case Full:
+                    fullDetailCount++;
+                    break;
+            }
+            target.setDetailLevelOnUiThread(levels[i]);
+            if (levels[i] != AnchorDetailPolicy.DetailLevel.Hidden) {
+                stillShown.add(target);
+            }
+        }
+        nearby.clear();
+
+        // Shown last frame and out of range now
+        for (VisibilityTarget target : shown) {
+            if (!stillShown.contains(target)) {
+                target.setDetailLevelOnUiThread(AnchorDetailPolicy.DetailLevel.Hidden);
+            }
+        }
+        Set<VisibilityTarget> swap = shown;
+        shown = stillShown;
+        stillShown = swap;
+        stillShown.clear();
+        hiddenCount = indexedCount - lowDetailCount - fullDetailCount;
+    }
+
+    public int getCulledCount() {
+        return hiddenCount;
+    }
+
+    public int getVisibleCount() {
+        return lowDetailCount + fullDetailCount;
+    }
+
+    public int getFullDetailCount() {
+        return fullDetailCount;
+    }
+
+    private void reindex(Collection<? extends VisibilityTarget> targets) {
+        int count = 0;
+        for (VisibilityTarget target : targets) {
+            if (!target.getWorldPosition(position)) {
+                continue;
+            }
+            spatialIndex.update(target, position[0], position[1], position[2], frame);
+            if (!shown.contains(target)) {
+                // New or far away, the query below shows it again if it is in range
+                target.setDetailLevelOnUiThread(AnchorDetailPolicy.DetailLevel.Hidden);
+            }
+            count++;
+        }
+        if (spatialIndex.size() > count) {
+            // Some targets were removed or destroyed since the last refresh
+            spatialIndex.removeOlderThan(frame);
+        }
+        indexedFrame = frame;
+        indexedCount = count;
+    }
+
+    // Order independent hash of the targets' identities, so that a removal and an addition
+    // in the same frame still trigger a refresh even though the count stays the same.
+    private static long membershipHash(Collection<? extends VisibilityTarget> targets) {
+        long hash = 0;
+        for (VisibilityTarget target : targets) {
+            hash += (System.identityHashCode(target) + 1L) * 0x9E3779B97F4A7C15L;
+        }
+        return hash;
+    }
+}
@@ -3,45 +3,134 @@
 package com.microsoft.sampleandroid;
 
 import android.content.Context;
+import android.util.Log;
 
 import com.google.ar.core.Anchor;
 import com.google.ar.sceneform.AnchorNode;
+import com.google.ar.sceneform.math.Quaternion;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.Color;
 import com.google.ar.sceneform.rendering.Material;
 import com.google.ar.sceneform.rendering.MaterialFactory;
 import com.google.ar.sceneform.rendering.Renderable;
-import com.google.ar.sceneform.rendering.ShapeFactory;
 import com.google.ar.sceneform.ux.ArFragment;
 import com.google.ar.sceneform.ux.TransformableNode;
+import com.google.ar.sceneform.ux.TransformationSystem;
 import com.microsoft.azure.spatialanchors.CloudSpatialAnchor;
 
-import java.util.HashMap;
 import java.util.concurrent.CompletableFuture;
 
-class AnchorVisual {
+class AnchorVisual implements VisibilityTarget {
     enum Shape {
         Sphere,
         Cube,
         Cylinder,
     }
 
+    private static final String TAG = "AnchorVisual";
+
+    // App property the shape is saved in
+    static final AnchorPropertiesCodec.Field<Shape> SHAPE_PROPERTY =
+            AnchorPropertiesCodec.enumField("Shape", Shape.class, Shape.Sphere);
+
+    // A node pair that can move from a destroyed visual to a new one.
+    // The transformable node belongs to the transformation system of one ArFragment.
+    private static final class PooledNodes {
+        final AnchorNode anchorNode = new AnchorNode();
+        final TransformableNode transformableNode;
+        final TransformationSystem transformationSystem;
+
+        PooledNodes(TransformationSystem transformationSystem) {
+            this.transformationSystem = transformationSystem;
+            transformableNode = new TransformableNode(transformationSystem);
+            transformableNode.setParent(anchorNode);
+        }
+    }
+
+    // How often visuals rebuilt their renderable versus only swapped its material, UI thread only
+    private static long rebuildCount = 0;
+    private static long inPlaceMaterialUpdateCount = 0;
+
+    private static final int DEFAULT_NODE_POOL_SIZE = 32;
+    private static final ObjectPool<PooledNodes> nodePool = new ObjectPool<>(DEFAULT_NODE_POOL_SIZE);
+    // Guarded by nodePool
+    private static TransformationSystem pooledTransformationSystem;
+
+    private final PooledNodes nodes;
     private final AnchorNode anchorNode;
-    private TransformableNode transformableNode;
+    private final TransformableNode transformableNode;
+    // Set on the UI thread once the nodes went back to the pool
+    private volatile boolean destroyed = false;
     private CloudSpatialAnchor cloudAnchor;
     private Shape shape = Shape.Sphere;
     private Material material;
+    // Loaded model shown instead of the shape, null until it finished loading
+    private String modelAssetPath;
+    private MeshData model;
+    // What the node currently shows, only touched on the UI thread
+    private Shape renderedShape;
+    private Material renderedMaterial;
+    private boolean renderedLowDetail;
+    private MeshData renderedModel;
+    // The model whose renderable is attached, renderedModel may still be building
+    private MeshData attachedModel;
+    private AnchorDetailPolicy.DetailLevel detailLevel = AnchorDetailPolicy.DetailLevel.Full;
 
-    private static HashMap<Integer, CompletableFuture<Material>> solidColorMaterialCache = new HashMap<>();
+    private static final int MAX_CACHED_COLORS = 16;
+    // Loads use the application context so cached materials never pin an activity
+    private static volatile Context applicationContext;
+    private static final IntKeyedFutureCache<Material> solidColorMaterialCache =
+            new IntKeyedFutureCache<>(MAX_CACHED_COLORS, AnchorVisual::makeSolidColorMaterial);
 
     public AnchorVisual(ArFragment arFragment, Anchor localAnchor) {
-        anchorNode = new AnchorNode(localAnchor);
+        nodes = acquireNodes(arFragment.getTransformationSystem());
+        anchorNode = nodes.anchorNode;
+        anchorNode.setAnchor(localAnchor);
 
-        transformableNode = new TransformableNode(arFragment.getTransformationSystem());
+        transformableNode = nodes.transformableNode;
         transformableNode.getScaleController().setEnabled(false);
         transformableNode.getTranslationController().setEnabled(false);
         transformableNode.getRotationController().setEnabled(false);
-        transformableNode.setParent(this.anchorNode);
+    }
+
+    // Limits how many idle node pairs are kept around for reuse.
+    public static void setNodePoolSize(int size) {
+        nodePool.setMaxSize(size);
+    }
+
+    // Drops the pooled nodes, call when the ArFragment that owns them goes away.
+    // Logs how well renderables and nodes were reused up to now.
+    public static void clearNodePool() {
+        Log.d(TAG, "Renderable cache: " + RenderableCache.getHitCount() + " hits, "
+                + RenderableCache.getMissCount() + " misses, " + RenderableCache.getEvictionCount() + " evictions; "
+                + rebuildCount + " rebuilds, " + inPlaceMaterialUpdateCount + " in-place material updates");
+        synchronized (nodePool) {
+            nodePool.clear();
+            pooledTransformationSystem = null;
+        }
+    }
+
+    static long getRebuildCount() {
+        return rebuildCount;
+    }
+
+    static long getInPlaceMaterialUpdateCount() {
+        return inPlaceMaterialUpdateCount;
+    }
+
+    static ObjectPool<?> getNodePool() {
+        return nodePool;
+    }
+
+    private static PooledNodes acquireNodes(TransformationSystem transformationSystem) {
+        synchronized (nodePool) {
+            if (pooledTransformationSystem != transformationSystem) {
+                // Pooled nodes are bound to another fragment's transformation system
+                nodePool.clear();
+                pooledTransformationSystem = transformationSystem;
+            }
+            return nodePool.acquire(() -> new PooledNodes(transformationSystem));
+        }
     }
 
     public AnchorVisual(ArFragment arFragment, CloudSpatialAnchor cloudAnchor) {
@@ -49,8 +138,9 @@ class AnchorVisual {
         setCloudAnchor(cloudAnchor);
     }
 
+    // Null once destroyed, the pooled node may already belong to another visual
     public AnchorNode getAnchorNode() {
-        return this.anchorNode;
+        return destroyed ? null : this.anchorNode;
     }
 
     public CloudSpatialAnchor getCloudAnchor() {
@@ -58,11 +148,14 @@ class AnchorVisual {
     }
 
     public Anchor getLocalAnchor() {
-        return this.anchorNode.getAnchor();
+        return destroyed ? null : this.anchorNode.getAnchor();
     }
 
     public void render(ArFragment arFragment) {
         MainThreadContext.runOnUiThread(() -> {
+            if (destroyed) {
+                return;
+            }
             recreateRenderableOnUiThread();
             anchorNode.setParent(arFragment.getArSceneView().getScene());
         });
@@ -72,22 +165,48 @@ class AnchorVisual {
         this.cloudAnchor = cloudAnchor;
     }
 
-    public synchronized void setColor(Context context, int rgb) {
-        CompletableFuture<Material> loadMaterial =
-                solidColorMaterialCache.computeIfAbsent(rgb,
-                    color ->
-                    {
-                        CompletableFuture<Material> promise = new CompletableFuture<>();
-                        MainThreadContext.runOnUiThread(() -> {
-                            try {
-                                MaterialFactory.makeOpaqueWithColor(context, new Color(rgb)).thenAccept(material1 -> promise.complete(material1));
-                            } catch (Exception ex) {
-                                promise.completeExceptionally(ex);
+    // Moves the visual onto a new detection of its cloud anchor, the previous local anchor is detached.
+    public void updateCloudAnchor(CloudSpatialAnchor cloudAnchor) {
+        setCloudAnchor(cloudAnchor);
+        MainThreadContext.runOnUiThread(() -> {
+            if (destroyed) {
+                return;
+            }
+            Anchor previous = anchorNode.getAnchor();
+            Anchor next = cloudAnchor.getLocalAnchor();
+            if (next != null && next != previous) {
+                anchorNode.setAnchor(next);
+                if (previous != null) {
+                    previous.detach();
+                }
+            }
+        });
+    }
+
+    public void setColor(Context context, int rgb) {
+        if (applicationContext == null) {
+            applicationContext = context.getApplicationContext();
+        }
+        solidColorMaterialCache.get(rgb).thenAccept(this::setMaterial);
+    }
+
+    private static CompletableFuture<Material> makeSolidColorMaterial(int rgb) {
+        CompletableFuture<Material> promise = new CompletableFuture<>();
+        MainThreadContext.runOnUiThread(() -> {
+            try {
+                MaterialFactory.makeOpaqueWithColor(applicationContext, new Color(rgb))
+                        .whenComplete((material, thrown) -> {
+                            if (thrown != null) {
+                                promise.completeExceptionally(thrown);
+                            } else {
+                                promise.complete(material);
                             }
                         });
-                        return promise;
-                    });
-        loadMaterial.thenAccept(this::setMaterial);
+            } catch (Exception ex) {
+                promise.completeExceptionally(ex);
+            }
+        });
+        return promise;
     }
 
     public void setMaterial(Material material) {
@@ -103,19 +222,64 @@ class AnchorVisual {
             MainThreadContext.runOnUiThread(this::recreateRenderableOnUiThread);
         }
     }
+
+    // Shows the OBJ model from the app's assets instead of the shape, once it has loaded.
+    public void setModel(Context context, String assetPath) {
+        modelAssetPath = assetPath;
+        ModelLoader.load(context, assetPath).thenAccept(mesh ->
+                MainThreadContext.runOnUiThread(() -> {
+                    if (assetPath.equals(modelAssetPath)) {
+                        model = mesh;
+                        recreateRenderableOnUiThread();
+                    }
+                }));
+    }
+
     public Shape getShape() {
         return shape;
     }
 
     public void setMovable(boolean movable) {
         MainThreadContext.runOnUiThread(() -> {
+            if (destroyed) {
+                return;
+            }
             transformableNode.getTranslationController().setEnabled(movable);
             transformableNode.getRotationController().setEnabled(movable);
         });
     }
 
+    @Override
+    public boolean getWorldPosition(float[] position) {
+        if (destroyed) {
+            return false;
+        }
+        Vector3 worldPosition = anchorNode.getWorldPosition();
+        position[0] = worldPosition.x;
+        position[1] = worldPosition.y;
+        position[2] = worldPosition.z;
+        return true;
+    }
+
+    // Applies the level chosen by the visibility pass, must be called on the UI thread.
+    @Override
+    public void setDetailLevelOnUiThread(AnchorDetailPolicy.DetailLevel level) {
+        if (destroyed || detailLevel == level) {
+            return;
+        }
+        detailLevel = level;
+        anchorNode.setEnabled(level != AnchorDetailPolicy.DetailLevel.Hidden);
+        if (level != AnchorDetailPolicy.DetailLevel.Hidden) {
+            recreateRenderableOnUiThread();
+        }
+    }
+
     public void destroy() {
         MainThreadContext.runOnUiThread(() -> {
+            if (destroyed) {
+                return;
+            }
+            destroyed = true;
             anchorNode.setRenderable(null);
             anchorNode.setParent(null);
             Anchor localAnchor =  anchorNode.getAnchor();
@@ -123,36 +287,98 @@ class AnchorVisual {
                 anchorNode.setAnchor(null);
                 localAnchor.detach();
             }
+            releaseNodesOnUiThread();
         });
     }
 
+    private void releaseNodesOnUiThread() {
+        // Reset everything a visual may have changed, the next owner expects fresh nodes
+        if (transformableNode.isSelected()) {
+            nodes.transformationSystem.selectNode(null);
+        }
+        anchorNode.setEnabled(true);
+        transformableNode.setRenderable(null);
+        transformableNode.setLocalPosition(Vector3.zero());
+        transformableNode.setLocalRotation(Quaternion.identity());
+        transformableNode.setLocalScale(Vector3.one());
+
+        synchronized (nodePool) {
+            if (pooledTransformationSystem == nodes.transformationSystem) {
+                nodePool.release(nodes);
+            }
+        }
+    }
+
     private void recreateRenderableOnUiThread() {
-        if (material != null) {
-            Renderable renderable;
-            switch (shape) {
-                case Sphere:
-                    renderable = ShapeFactory.makeSphere(
-                            0.1f,
-                            new Vector3(0.0f, 0.1f, 0.0f),
-                            material);
-                    break;
-                case Cube:
-                    renderable = ShapeFactory.makeCube(
-                            new Vector3(0.161f, 0.161f, 0.161f),
-                            new Vector3(0.0f, 0.0805f, 0.0f),
-                            material);
-                    break;
-                case Cylinder:
-                    renderable = ShapeFactory.makeCylinder(
-                            0.0874f,
-                            0.175f,
-                            new Vector3(0.0f, 0.0875f, 0.0f),
-                            material);
-                    break;
-                default:
-                    throw new IllegalStateException("Invalid shape");
+        if (destroyed) {
+            // The nodes may already belong to another visual
+            return;
+        }
+        if (material == null) {
+            return;
+        }
+
+        if (model != null) {
+            if (renderedModel == model) {
+                if (attachedModel == model) {
+                    updateMaterialInPlace();
+                } else {
+                    // Still building, the build picks up the latest material when it lands
+                    renderedMaterial = material;
+                }
+                return;
             }
-            transformableNode.setRenderable(renderable);
+            MeshData requestedModel = model;
+            renderedModel = requestedModel;
+            renderedMaterial = material;
+            renderedShape = null;
+            rebuildCount++;
+            RenderableCache.obtainModel(requestedModel, material).whenComplete((prototype, ex) ->
+                    MainThreadContext.runOnUiThread(() -> {
+                        // Skip it if the visual moved on in the meantime
+                        if (destroyed || renderedModel != requestedModel) {
+                            return;
+                        }
+                        if (ex != null) {
+                            // Fall back to the shape rather than leave the node empty
+                            model = null;
+                            modelAssetPath = null;
+                            renderedModel = null;
+                            attachedModel = null;
+                            recreateRenderableOnUiThread();
+                            return;
+                        }
+                        Renderable renderable = prototype.makeCopy();
+                        renderable.setMaterial(renderedMaterial);
+                        transformableNode.setRenderable(renderable);
+                        attachedModel = requestedModel;
+                    }));
+            return;
+        }
+
+        boolean lowDetail = detailLevel == AnchorDetailPolicy.DetailLevel.Low;
+        if (renderedShape == shape && renderedLowDetail == lowDetail) {
+            // Same mesh, e.g. the color changed on save, or render() after setColor()
+            updateMaterialInPlace();
+            return;
+        }
+        transformableNode.setRenderable(RenderableCache.obtain(shape, material, lowDetail));
+        renderedShape = shape;
+        renderedMaterial = material;
+        renderedLowDetail = lowDetail;
+        renderedModel = null;
+        attachedModel = null;
+        rebuildCount++;
+    }
+
+    // The attached renderable is this visual's own copy, so its material can be swapped
+    // without touching the shared mesh or other visuals.
+    private void updateMaterialInPlace() {
+        if (renderedMaterial == material) {
+            return;
         }
+        transformableNode.getRenderable().setMaterial(material);
+        renderedMaterial = material;
+        inPlaceMaterialUpdateCount++;
     }
 }
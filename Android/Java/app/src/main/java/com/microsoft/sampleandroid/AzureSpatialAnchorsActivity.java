@@ -16,6 +16,7 @@ import com.google.ar.core.HitResult;
 import com.google.ar.core.Plane;
 import com.google.ar.sceneform.ArSceneView;
 import com.google.ar.sceneform.Scene;
+import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.Color;
 import com.google.ar.sceneform.rendering.Material;
 import com.google.ar.sceneform.rendering.MaterialFactory;
@@ -39,6 +40,8 @@ public class AzureSpatialAnchorsActivity extends AppCompatActivity
 {
     private String anchorID;
     private final ConcurrentHashMap<String, AnchorVisual> anchorVisuals = new ConcurrentHashMap<>();
+    private final AnchorVisibilityPass visibilityPass = new AnchorVisibilityPass();
+    private final FrameScheduler frameScheduler = new FrameScheduler();
     private boolean basicDemo = true;
     private AzureSpatialAnchorsManager cloudAnchorManager;
     private DemoStep currentDemoStep = DemoStep.Start;
@@ -88,6 +91,12 @@ public class AzureSpatialAnchorsActivity extends AppCompatActivity
                 // Pass frames to Spatial Anchors for processing.
                 cloudAnchorManager.update(sceneView.getArFrame());
             }
+
+            frameScheduler.postLatest(FrameScheduler.Priority.Normal, "visibility", () -> {
+                Vector3 cameraPosition = scene.getCamera().getWorldPosition();
+                visibilityPass.run(cameraPosition.x, cameraPosition.y, cameraPosition.z, anchorVisuals.values());
+            });
+            frameScheduler.runFrame();
         });
 
         backButton = findViewById(R.id.backButton);
@@ -101,6 +110,7 @@ public class AzureSpatialAnchorsActivity extends AppCompatActivity
     protected void onDestroy() {
         super.onDestroy();
         destroySession();
+        AnchorVisual.clearNodePool();
     }
 
     @Override
@@ -378,7 +388,8 @@ public class AzureSpatialAnchorsActivity extends AppCompatActivity
         synchronized (progressLock) {
             if (currentDemoStep == DemoStep.SaveCloudAnchor) {
                 DecimalFormat decimalFormat = new DecimalFormat("00");
-                runOnUiThread(() -> {
+                // Session updates arrive faster than anyone can read, only the latest is shown
+                frameScheduler.postLatest(FrameScheduler.Priority.Low, "scanProgress", () -> {
                     String progressMessage = "Scan progress is " + decimalFormat.format(Math.min(1.0f, progress) * 100) + "%";
                     scanProgressText.setText(progressMessage);
                 });
@@ -7,20 +7,22 @@ import android.util.Log;
 import com.google.ar.core.Frame;
 import com.google.ar.core.Session;
 import com.microsoft.azure.spatialanchors.AnchorLocateCriteria;
+import com.microsoft.azure.spatialanchors.AnchorLocatedEvent;
 import com.microsoft.azure.spatialanchors.AnchorLocatedListener;
 import com.microsoft.azure.spatialanchors.CloudSpatialAnchor;
 import com.microsoft.azure.spatialanchors.CloudSpatialAnchorSession;
 import com.microsoft.azure.spatialanchors.CloudSpatialAnchorWatcher;
 import com.microsoft.azure.spatialanchors.PlatformLocationProvider;
+import com.microsoft.azure.spatialanchors.LocateAnchorsCompletedEvent;
 import com.microsoft.azure.spatialanchors.LocateAnchorsCompletedListener;
 import com.microsoft.azure.spatialanchors.NearDeviceCriteria;
 import com.microsoft.azure.spatialanchors.OnLogDebugEvent;
 import com.microsoft.azure.spatialanchors.SessionErrorEvent;
 import com.microsoft.azure.spatialanchors.SessionLogLevel;
+import com.microsoft.azure.spatialanchors.SessionUpdatedEvent;
 import com.microsoft.azure.spatialanchors.SessionUpdatedListener;
 
 import java.util.List;
-import java.util.Vector;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -41,11 +43,17 @@ class AzureSpatialAnchorsManager {
     private static final String TAG = "ASACloud";
 
     private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    // Waiting on a session future blocks a thread, so a page of anchor loads gets its own
+    // threads instead of queueing behind the two above. The cursor bounds them to one page.
+    private final ExecutorService pageLoadExecutor = Executors.newCachedThreadPool();
 
     private boolean running = false;
 
     private final CloudSpatialAnchorSession spatialAnchorsSession;
 
+    // Receives a copy of every session event while recording
+    private volatile SessionEventListener eventRecorder;
+
     public AzureSpatialAnchorsManager(Session arCoreSession) {
         if (arCoreSession == null) {
             throw new IllegalArgumentException("The arCoreSession may not be null.");
@@ -60,6 +68,9 @@ class AzureSpatialAnchorsManager {
 
         spatialAnchorsSession.addOnLogDebugListener(this::onLogDebugListener);
         spatialAnchorsSession.addErrorListener(this::onErrorListener);
+        spatialAnchorsSession.addSessionUpdatedListener(this::recordSessionUpdated);
+        spatialAnchorsSession.addAnchorLocatedListener(this::recordAnchorLocated);
+        spatialAnchorsSession.addLocateAnchorsCompletedListener(this::recordLocateAnchorsCompleted);
     }
 
     //region Listener Handling
@@ -88,34 +99,42 @@ class AzureSpatialAnchorsManager {
         this.spatialAnchorsSession.removeLocateAnchorsCompletedListener(listener);
     }
 
+    // Copies every session event to the recorder, e.g. a SessionEventLog, until stopped.
+    public void startRecordingEvents(SessionEventListener recorder) {
+        this.eventRecorder = recorder;
+    }
+
+    public void stopRecordingEvents() {
+        this.eventRecorder = null;
+    }
+
     //endregion
 
     public void setLocationProvider(PlatformLocationProvider locationProvider) {
         spatialAnchorsSession.setLocationProvider(locationProvider);
     }
 
-    public CompletableFuture<List<CloudSpatialAnchor>> enumerateNearbyAnchors(NearDeviceCriteria criteria) {
+    // Anchor properties are only fetched as pages are read from the cursor, for areas with
+    // too many anchors to hold at once. A page's anchors load concurrently.
+    public CompletableFuture<AnchorPageCursor<CloudSpatialAnchor>> openNearbyAnchorCursor(NearDeviceCriteria criteria, int pageSize) {
         return this.toCompletableFuture(
                 spatialAnchorsSession.getNearbyAnchorIdsAsync(criteria))
-                .thenApply(anchorIds -> {
-                    List<CloudSpatialAnchor> anchors = new Vector<>();
-
-                    for (String anchorId : anchorIds) {
-                        anchors.add(this.toCompletableFuture(
-                                spatialAnchorsSession.getAnchorPropertiesAsync(anchorId)).join());
-                    }
-
-                    return anchors;
-                });
+                .thenApply(anchorIds -> new AnchorPageCursor<>(anchorIds, pageSize,
+                        anchorId -> this.toCompletableFuture(
+                                spatialAnchorsSession.getAnchorPropertiesAsync(anchorId), pageLoadExecutor)
+                                .whenComplete((anchor, ex) -> {
+                                    if (ex != null) {
+                                        Log.w(TAG, "Failed to load anchor " + anchorId, ex);
+                                    }
+                                })));
     }
 
     public CompletableFuture<CloudSpatialAnchor> createAnchorAsync(CloudSpatialAnchor anchor) {
-        //noinspection unchecked,unchecked
         return this.toEmptyCompletableFuture(spatialAnchorsSession.createAnchorAsync(anchor))
                 .thenApply((ignore) -> anchor);
     }
 
-    public CompletableFuture deleteAnchorAsync(CloudSpatialAnchor anchor) {
+    public CompletableFuture<Void> deleteAnchorAsync(CloudSpatialAnchor anchor) {
         return this.toEmptyCompletableFuture(spatialAnchorsSession.deleteAnchorAsync(anchor));
     }
 
@@ -168,6 +187,10 @@ class AzureSpatialAnchorsManager {
     }
 
     private <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
+        return toCompletableFuture(future, executorService);
+    }
+
+    private <T> CompletableFuture<T> toCompletableFuture(Future<T> future, ExecutorService executor) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 return future.get();
@@ -175,10 +198,10 @@ class AzureSpatialAnchorsManager {
                 e.printStackTrace();
                 throw new RuntimeException(e);
             }
-        }, executorService);
+        }, executor);
     }
 
-    private CompletableFuture toEmptyCompletableFuture(Future future) {
+    private CompletableFuture<Void> toEmptyCompletableFuture(Future<?> future) {
         return CompletableFuture.runAsync(() -> {
             try {
                 future.get();
@@ -191,6 +214,32 @@ class AzureSpatialAnchorsManager {
 
     private void onErrorListener(SessionErrorEvent event) {
         Log.e(TAG, event.getErrorMessage());
+        SessionEventListener recorder = eventRecorder;
+        if (recorder != null) {
+            recorder.onSessionError(event.getErrorMessage());
+        }
+    }
+
+    private void recordSessionUpdated(SessionUpdatedEvent event) {
+        SessionEventListener recorder = eventRecorder;
+        if (recorder != null) {
+            recorder.onSessionUpdated(event.getStatus().getReadyForCreateProgress(),
+                    event.getStatus().getRecommendedForCreateProgress());
+        }
+    }
+
+    private void recordAnchorLocated(AnchorLocatedEvent event) {
+        SessionEventListener recorder = eventRecorder;
+        if (recorder != null) {
+            recorder.onAnchorLocated(event.getIdentifier(), event.getStatus().name());
+        }
+    }
+
+    private void recordLocateAnchorsCompleted(LocateAnchorsCompletedEvent event) {
+        SessionEventListener recorder = eventRecorder;
+        if (recorder != null) {
+            recorder.onLocateAnchorsCompleted(event.getCancelled());
+        }
     }
 
     private void onLogDebugListener(OnLogDebugEvent args) {
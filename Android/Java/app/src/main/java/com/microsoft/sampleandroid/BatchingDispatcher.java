@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Gathers runnables from any thread into a lock-free queue and runs them in batches.
+// Only one drain is outstanding on the target executor at a time, so a burst of
+// dispatches costs a single message instead of one per runnable. A drain stops once
+// it used up its time budget and schedules another one for the rest, which lets the
+// target thread render a frame in between.
+// Runnables are never dropped, overflow only counts dispatches that found the queue
+// deeper than its soft capacity.
+class BatchingDispatcher {
+    private final Executor target;
+    private final long drainBudgetNanos;
+    private final int softCapacity;
+
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong dispatchCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    // Only written by the draining thread
+    private volatile long drainCount = 0;
+    private volatile long budgetExceededCount = 0;
+    private volatile long lastDrainNanos = 0;
+    private volatile long maxDrainNanos = 0;
+
+    public BatchingDispatcher(Executor target, long drainBudgetNanos, int softCapacity) {
+        this.target = target;
+        this.drainBudgetNanos = drainBudgetNanos;
+        this.softCapacity = softCapacity;
+    }
+
+    public void dispatch(Runnable runnable) {
+        queue.add(runnable);
+        int depth = queueDepth.incrementAndGet();
+        dispatchCount.incrementAndGet();
+        if (depth > softCapacity) {
+            overflowCount.incrementAndGet();
+        }
+        int max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)) {
+            // Lost the race to another dispatcher, try again with its value
+        }
+        scheduleDrain();
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getDispatchCount() {
+        return dispatchCount.get();
+    }
+
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    public long getDrainCount() {
+        return drainCount;
+    }
+
+    public long getBudgetExceededCount() {
+        return budgetExceededCount;
+    }
+
+    public long getLastDrainNanos() {
+        return lastDrainNanos;
+    }
+
+    public long getMaxDrainNanos() {
+        return maxDrainNanos;
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            target.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        // Dispatches from here on schedule a new drain if this one misses them
+        drainScheduled.set(false);
+        long start = System.nanoTime();
+        boolean budgetExceeded = false;
+        try {
+            Runnable runnable;
+            while ((runnable = queue.poll()) != null) {
+                queueDepth.decrementAndGet();
+                runnable.run();
+                if (System.nanoTime() - start >= drainBudgetNanos) {
+                    budgetExceeded = true;
+                    break;
+                }
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            drainCount++;
+            lastDrainNanos = elapsed;
+            if (elapsed > maxDrainNanos) {
+                maxDrainNanos = elapsed;
+            }
+            if (budgetExceeded) {
+                budgetExceededCount++;
+            }
+            // Also covers a runnable that threw, the rest of the queue must still run
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+// Known Bluetooth beacon proximity UUIDs, grouped by site.
+// Each UUID is kept as two longs in a sorted array, 16 bytes a beacon, so fleets of
+// thousands of beacons stay small and membership is a binary search. Strings are only
+// made for the subset handed to a session.
+// The configuration is plain text, one UUID per line, '#' starts a comment:
+//
+//     61687109-905f-4436-91f8-e602f514c96d
+//     site building-1 47.6396 -122.1283 150
+//     e1f54e02-1e23-44e0-9c3d-512eb56adec9
+//
+// UUIDs before the first site line apply everywhere. A site line gives a name, the
+// latitude and longitude of its center and a radius in meters, and the UUIDs after it
+// are only used near that site.
+// Instances are immutable, reloading makes a new registry.
+class BeaconRegistry {
+    private static final double EARTH_RADIUS_METERS = 6371000;
+
+    static class Site {
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+        private final double radiusMeters;
+        private final long[] keys;
+
+        Site(String name, double latitude, double longitude, double radiusMeters, long[] keys) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusMeters = radiusMeters;
+            this.keys = keys;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int size() {
+            return keys.length / 2;
+        }
+
+        public boolean contains(double latitude, double longitude) {
+            // Equirectangular approximation, plenty at campus scale
+            double x = Math.toRadians(longitude - this.longitude) * Math.cos(Math.toRadians((latitude + this.latitude) / 2));
+            double y = Math.toRadians(latitude - this.latitude);
+            return Math.sqrt(x * x + y * y) * EARTH_RADIUS_METERS <= radiusMeters;
+        }
+    }
+
+    private final long[] globalKeys;
+    private final List<Site> sites;
+    // Every UUID of every site, for membership checks
+    private final long[] allKeys;
+    private final int rejectedLineCount;
+
+    private BeaconRegistry(long[] globalKeys, List<Site> sites, int rejectedLineCount) {
+        this.globalKeys = globalKeys;
+        this.sites = sites;
+        this.rejectedLineCount = rejectedLineCount;
+
+        KeyList all = new KeyList();
+        all.addAll(globalKeys);
+        for (Site site : sites) {
+            all.addAll(site.keys);
+        }
+        this.allKeys = all.toSortedArray();
+    }
+
+    // A registry of UUIDs that apply everywhere.
+    public static BeaconRegistry of(String... uuids) {
+        KeyList keys = new KeyList();
+        for (String uuid : uuids) {
+            keys.add(UUID.fromString(uuid));
+        }
+        return new BeaconRegistry(keys.toSortedArray(), new ArrayList<>(), 0);
+    }
+
+    // Parses the configuration, lines that do not parse are skipped and counted.
+    public static BeaconRegistry parse(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        KeyList globalKeys = new KeyList();
+        List<Site> sites = new ArrayList<>();
+        KeyList siteKeys = null;
+        String[] site = null;
+        int rejected = 0;
+
+        String line;
+        while ((line = lines.readLine()) != null) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            if (line.startsWith("site ")) {
+                String[] fields = line.split("\\s+");
+                if (fields.length != 5 || !isSiteValid(fields)) {
+                    rejected++;
+                    // Keep the site before it, but drop the UUIDs of the broken one rather
+                    // than use them everywhere
+                    addSite(sites, site, siteKeys);
+                    site = null;
+                    siteKeys = new KeyList();
+                    continue;
+                }
+                addSite(sites, site, siteKeys);
+                site = fields;
+                siteKeys = new KeyList();
+                continue;
+            }
+
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(line);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+                continue;
+            }
+            (siteKeys != null ? siteKeys : globalKeys).add(uuid);
+        }
+        addSite(sites, site, siteKeys);
+
+        return new BeaconRegistry(globalKeys.toSortedArray(), sites, rejected);
+    }
+
+    // Number of distinct UUIDs across all sites
+    public int size() {
+        return allKeys.length / 2;
+    }
+
+    public List<Site> getSites() {
+        return sites;
+    }
+
+    public int getRejectedLineCount() {
+        return rejectedLineCount;
+    }
+
+    public boolean contains(UUID uuid) {
+        return contains(allKeys, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    public boolean contains(String uuid) {
+        try {
+            return contains(UUID.fromString(uuid));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // The UUIDs that apply everywhere plus those of the named site.
+    public String[] getUuidsForSite(String name) {
+        KeyList keys = new KeyList();
+        keys.addAll(globalKeys);
+        for (Site site : sites) {
+            if (site.name.equals(name)) {
+                keys.addAll(site.keys);
+            }
+        }
+        return keys.toUuidStrings();
+    }
+
+    // The UUIDs that apply everywhere plus those of every site around the location.
+    public String[] getUuidsForLocation(double latitude, double longitude) {
+        KeyList keys = new KeyList();
+        keys.addAll(globalKeys);
+        for (Site site : sites) {
+            if (site.contains(latitude, longitude)) {
+                keys.addAll(site.keys);
+            }
+        }
+        return keys.toUuidStrings();
+    }
+
+    // Only the UUIDs that apply everywhere, for when the location is unknown.
+    public String[] getGlobalUuids() {
+        return new KeyList(globalKeys).toUuidStrings();
+    }
+
+    private static void addSite(List<Site> sites, String[] fields, KeyList keys) {
+        if (fields == null) {
+            return;
+        }
+        sites.add(new Site(fields[1],
+                Double.parseDouble(fields[2]),
+                Double.parseDouble(fields[3]),
+                Double.parseDouble(fields[4]),
+                keys.toSortedArray()));
+    }
+
+    private static boolean isSiteValid(String[] fields) {
+        try {
+            double latitude = Double.parseDouble(fields[2]);
+            double longitude = Double.parseDouble(fields[3]);
+            double radius = Double.parseDouble(fields[4]);
+            return Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180 && radius > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean contains(long[] keys, long most, long least) {
+        int low = 0;
+        int high = keys.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = compare(keys[2 * middle], keys[2 * middle + 1], most, least);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int compare(long mostA, long leastA, long mostB, long leastB) {
+        int order = Long.compare(mostA, mostB);
+        return order != 0 ? order : Long.compare(leastA, leastB);
+    }
+
+    // Growable array of UUIDs as most and least significant bit pairs
+    private static final class KeyList {
+        private long[] keys;
+        private int count = 0;
+
+        KeyList() {
+            keys = new long[16];
+        }
+
+        KeyList(long[] keys) {
+            this.keys = keys.clone();
+            this.count = keys.length / 2;
+        }
+
+        void add(UUID uuid) {
+            add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        }
+
+        void add(long most, long least) {
+            if (2 * count == keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+            }
+            keys[2 * count] = most;
+            keys[2 * count + 1] = least;
+            count++;
+        }
+
+        void addAll(long[] pairs) {
+            for (int i = 0; i < pairs.length; i += 2) {
+                add(pairs[i], pairs[i + 1]);
+            }
+        }
+
+        // Sorted and without duplicates
+        long[] toSortedArray() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> compare(keys[2 * a], keys[2 * a + 1], keys[2 * b], keys[2 * b + 1]));
+
+            long[] sorted = new long[2 * count];
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                long most = keys[2 * order[i]];
+                long least = keys[2 * order[i] + 1];
+                if (unique > 0 && sorted[2 * unique - 2] == most && sorted[2 * unique - 1] == least) {
+                    continue;
+                }
+                sorted[2 * unique] = most;
+                sorted[2 * unique + 1] = least;
+                unique++;
+            }
+            return Arrays.copyOf(sorted, 2 * unique);
+        }
+
+        String[] toUuidStrings() {
+            long[] sorted = toSortedArray();
+            String[] uuids = new String[sorted.length / 2];
+            for (int i = 0; i < uuids.length; i++) {
+                uuids[i] = new UUID(sorted[2 * i], sorted[2 * i + 1]).toString().toLowerCase(Locale.US);
+            }
+            return uuids;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+public interface BeaconRegistryListener {
+    void onBeaconRegistryChanged(BeaconRegistry registry);
+}
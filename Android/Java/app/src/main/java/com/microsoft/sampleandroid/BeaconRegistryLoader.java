@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import android.content.Context;
+import android.os.FileObserver;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+// Loads the beacon registry and reloads it when the configuration changes.
+// A beacons.txt in the app's files directory overrides the one bundled in the assets,
+// so a site can push a new list to a device without a new build. Replacing that file
+// while watching reloads the registry and notifies the listener, on a background thread.
+// Falls back to CoarseRelocSettings.KNOWN_BLUETOOTH_PROXIMITY_UUIDS when neither loads.
+class BeaconRegistryLoader {
+    private static final String TAG = "BeaconRegistry";
+    static final String FILE_NAME = "beacons.txt";
+
+    private final Context context;
+    private FileObserver observer;
+
+    public BeaconRegistryLoader(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public File getOverrideFile() {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    public BeaconRegistry load() {
+        File override = getOverrideFile();
+        try (InputStream stream = override.exists()
+                ? new FileInputStream(override)
+                : context.getAssets().open(FILE_NAME);
+             Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            BeaconRegistry registry = BeaconRegistry.parse(reader);
+            if (registry.getRejectedLineCount() > 0) {
+                Log.w(TAG, "Skipped " + registry.getRejectedLineCount() + " malformed lines in " + FILE_NAME);
+            }
+            Log.d(TAG, "Loaded " + registry.size() + " beacons in " + registry.getSites().size() + " sites from "
+                    + (override.exists() ? override.getPath() : "assets"));
+            return registry;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not load " + FILE_NAME + ", using the built in beacons", e);
+            return BeaconRegistry.of(CoarseRelocSettings.KNOWN_BLUETOOTH_PROXIMITY_UUIDS);
+        }
+    }
+
+    public synchronized void startWatching(BeaconRegistryListener listener) {
+        stopWatching();
+        observer = new FileObserver(context.getFilesDir().getPath(),
+                FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO | FileObserver.DELETE) {
+            @Override
+            public void onEvent(int event, String path) {
+                if (FILE_NAME.equals(path)) {
+                    listener.onBeaconRegistryChanged(load());
+                }
+            }
+        };
+        observer.startWatching();
+    }
+
+    public synchronized void stopWatching() {
+        if (observer != null) {
+            observer.stopWatching();
+            observer = null;
+        }
+    }
+}
@@ -4,7 +4,9 @@ package com.microsoft.sampleandroid;
 
 import android.app.AlertDialog;
 import android.content.DialogInterface;
+import android.location.Location;
 import android.os.Bundle;
+import android.util.Log;
 import android.support.annotation.NonNull;
 import android.support.v4.app.FragmentActivity;
 import android.view.View;
@@ -12,26 +14,46 @@ import android.widget.Toast;
 
 import com.google.ar.sceneform.ArSceneView;
 import com.google.ar.sceneform.Scene;
+import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.ux.ArFragment;
 import com.microsoft.azure.spatialanchors.CloudSpatialAnchor;
 import com.microsoft.azure.spatialanchors.PlatformLocationProvider;
 import com.microsoft.azure.spatialanchors.NearDeviceCriteria;
 
-import java.util.List;
-import java.util.Map;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static android.graphics.Color.GREEN;
 
 public class CoarseRelocActivity extends FragmentActivity
         implements AnchorPlacementListener, AnchorCreationListener, AnchorDiscoveryListener {
     private AzureSpatialAnchorsManager cloudAnchorManager;
+    // The deletion walk in progress, cleared to cancel it
+    private volatile AnchorPageCursor<CloudSpatialAnchor> deletingAnchors;
     private PlatformLocationProvider locationProvider;
 
     private ArFragment arFragment;
     private ArSceneView sceneView;
     private SensorStatusView sensorStatusView;
     private ActionSelectionFragment actionSelectionFragment;
+    private final DiscoveredAnchorRegistry<AnchorVisual> discoveredAnchors = new DiscoveredAnchorRegistry<>();
+    private final AnchorVisibilityPass visibilityPass = new AnchorVisibilityPass();
+    private final FrameScheduler frameScheduler = new FrameScheduler();
+    private final SensorTimeline sensorTimeline = new SensorTimeline();
+    private NearDeviceSearchStore searchStore;
+    private BeaconRegistryLoader beaconLoader;
+    private volatile BeaconRegistry beaconRegistry;
+    private SensorRecording sensorRecording;
+    private SessionEventLog sessionEventLog;
+    private SensorReadiness sensorReadiness;
     private static final int REQUEST_CODE_ALL_SENSORS = 1;
+    // Deletion never follows the adaptive watcher search, which may reach much further
+    private static final float DELETE_RADIUS_METERS = 5.f;
 
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
@@ -44,7 +66,9 @@ public class CoarseRelocActivity extends FragmentActivity
                         .show();
                 finish();
             } else if (locationProvider != null) {
-                SensorPermissionsHelper.enableAllowedSensors(this, locationProvider);
+                // The location may be known now, pick the beacons of this site
+                applyKnownBeacons();
+                enableAllowedSensors();
             }
         }
     }
@@ -57,6 +81,10 @@ public class CoarseRelocActivity extends FragmentActivity
         arFragment = (ArFragment)getSupportFragmentManager().findFragmentById(R.id.ar_fragment);
         sceneView = arFragment.getArSceneView();
         sensorStatusView = findViewById(R.id.sensor_status);
+        sensorStatusView.addStatusListener(sensorTimeline);
+        searchStore = new NearDeviceSearchStore(this);
+        beaconLoader = new BeaconRegistryLoader(this);
+        beaconRegistry = beaconLoader.load();
 
         Scene scene = sceneView.getScene();
         scene.addOnUpdateListener(frameTime -> {
@@ -65,7 +93,13 @@ public class CoarseRelocActivity extends FragmentActivity
                 cloudAnchorManager.update(sceneView.getArFrame());
             }
 
-            sensorStatusView.update();
+            frameScheduler.postLatest(FrameScheduler.Priority.Normal, "visibility", () -> {
+                Vector3 cameraPosition = scene.getCamera().getWorldPosition();
+                visibilityPass.run(cameraPosition.x, cameraPosition.y, cameraPosition.z, discoveredAnchors.values());
+            });
+            frameScheduler.postLatest(FrameScheduler.Priority.Low, "evictAnchors",
+                    () -> discoveredAnchors.evictUnseen(AnchorVisual::destroy));
+            frameScheduler.runFrame();
         });
 
         actionSelectionFragment = new ActionSelectionFragment();
@@ -102,14 +136,25 @@ public class CoarseRelocActivity extends FragmentActivity
         SensorPermissionsHelper.requestMissingPermissions(this, REQUEST_CODE_ALL_SENSORS);
 
         locationProvider = new PlatformLocationProvider();
-        locationProvider.getSensors().setKnownBeaconProximityUuids(
-                CoarseRelocSettings.KNOWN_BLUETOOTH_PROXIMITY_UUIDS);
-        SensorPermissionsHelper.enableAllowedSensors(this, locationProvider);
+        applyKnownBeacons();
+        enableAllowedSensors();
+        beaconLoader.startWatching(registry -> {
+            beaconRegistry = registry;
+            runOnUiThread(this::applyKnownBeacons);
+        });
 
         cloudAnchorManager = new AzureSpatialAnchorsManager(sceneView.getSession());
         cloudAnchorManager.setLocationProvider(locationProvider);
+        if (CoarseRelocSettings.RECORD_SESSION_EVENTS) {
+            sessionEventLog = new SessionEventLog();
+            cloudAnchorManager.startRecordingEvents(sessionEventLog);
+        }
         cloudAnchorManager.start();
 
+        if (CoarseRelocSettings.RECORD_SENSOR_STATUS) {
+            sensorRecording = new SensorRecording();
+            sensorStatusView.addStatusListener(sensorRecording);
+        }
         sensorStatusView.setModel(new LocationProviderSensorStatus(locationProvider));
     }
 
@@ -117,16 +162,99 @@ public class CoarseRelocActivity extends FragmentActivity
     protected void onPause() {
 
         sensorStatusView.setModel(null);
+        beaconLoader.stopWatching();
+        if (sensorReadiness != null) {
+            sensorReadiness.cancel();
+            sensorReadiness = null;
+        }
+        if (sensorRecording != null) {
+            sensorStatusView.removeStatusListener(sensorRecording);
+            saveSensorRecording(sensorRecording);
+            sensorRecording = null;
+        }
 
+        // Its session is about to stop
+        deletingAnchors = null;
         if (cloudAnchorManager != null) {
+            cloudAnchorManager.stopRecordingEvents();
             cloudAnchorManager.stop();
             cloudAnchorManager = null;
         }
+        if (sessionEventLog != null) {
+            saveSessionEventLog(sessionEventLog);
+            sessionEventLog = null;
+        }
         locationProvider = null;
 
         super.onPause();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        AnchorVisual.clearNodePool();
+    }
+
+    // Radios come up in the background, each sensor is enabled on the provider once ready.
+    private void enableAllowedSensors() {
+        if (sensorReadiness != null) {
+            sensorReadiness.cancel();
+        }
+        SensorReadiness readiness = SensorEnabler.enableAllowedSensors(this, locationProvider);
+        sensorReadiness = readiness;
+        readiness.all().thenRun(() -> Log.d("ASADemo", "Sensors ready: "
+                + describeReadiness(readiness, SensorReadiness.Sensor.GeoLocation) + ", "
+                + describeReadiness(readiness, SensorReadiness.Sensor.Wifi) + ", "
+                + describeReadiness(readiness, SensorReadiness.Sensor.Bluetooth)));
+    }
+
+    private static String describeReadiness(SensorReadiness readiness, SensorReadiness.Sensor sensor) {
+        return sensor + (readiness.isAvailable(sensor) ? " on after " : " off after ")
+                + readiness.getLatencyMillis(sensor) + " ms";
+    }
+
+    // Only the beacons of the sites around the device, a campus can have thousands.
+    private void applyKnownBeacons() {
+        if (locationProvider == null) {
+            return;
+        }
+        Location location = LocationHelper.getLastKnownLocation(this);
+        String[] uuids = location == null
+                ? beaconRegistry.getGlobalUuids()
+                : beaconRegistry.getUuidsForLocation(location.getLatitude(), location.getLongitude());
+        locationProvider.getSensors().setKnownBeaconProximityUuids(uuids);
+    }
+
+    private void saveSensorRecording(SensorRecording recording) {
+        File directory = new File(getFilesDir(), "sensor-recordings");
+        File file = new File(directory, System.currentTimeMillis() + ".rec");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w("ASADemo", "Could not create " + directory);
+            return;
+        }
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            recording.write(output);
+            Log.d("ASADemo", "Saved " + recording.size() + " sensor status changes to " + file);
+        } catch (IOException e) {
+            Log.w("ASADemo", "Could not save the sensor recording", e);
+        }
+    }
+
+    private void saveSessionEventLog(SessionEventLog log) {
+        File directory = new File(getFilesDir(), "session-events");
+        File file = new File(directory, System.currentTimeMillis() + ".log");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w("ASADemo", "Could not create " + directory);
+            return;
+        }
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            log.write(output);
+            Log.d("ASADemo", "Saved " + log.size() + " session events to " + file);
+        } catch (IOException e) {
+            Log.w("ASADemo", "Could not save the session events", e);
+        }
+    }
+
     public void onAddAnchorClicked(View view) {
         AnchorPlacementFragment placementFragment = new AnchorPlacementFragment();
         placementFragment.setListener(this);
@@ -163,16 +291,18 @@ public class CoarseRelocActivity extends FragmentActivity
         WatcherFragment watcherFragment = new WatcherFragment();
         watcherFragment.setCloudAnchorManager(cloudAnchorManager);
         watcherFragment.setListener(this);
+        watcherFragment.setSensorTimeline(sensorTimeline);
+        watcherFragment.setSearch(searchStore.loadForCurrentLocation(), searchStore);
         FragmentHelper.pushFragment(this, watcherFragment);
     }
 
     public void onDeleteAllNearbyAnchors(View view) {
         NearDeviceCriteria criteria = new NearDeviceCriteria();
-        criteria.setDistanceInMeters(5.f);
+        criteria.setDistanceInMeters(DELETE_RADIUS_METERS);
 
         actionSelectionFragment.disableDeleteButton();
 
-        cloudAnchorManager.enumerateNearbyAnchors(criteria)
+        cloudAnchorManager.openNearbyAnchorCursor(criteria, AnchorPageCursor.DEFAULT_PAGE_SIZE)
                 .thenAccept(this::confirmAnchorDeletion)
                 .exceptionally(ex -> {
                     runOnUiThread(() ->
@@ -190,18 +320,21 @@ public class CoarseRelocActivity extends FragmentActivity
 
     @Override
     public void onAnchorDiscovered(CloudSpatialAnchor cloudAnchor) {
+        // Watchers report the same anchor again on every detection
+        boolean isNew = discoveredAnchors.discover(cloudAnchor.getIdentifier(),
+                () -> createDiscoveredVisual(cloudAnchor),
+                visual -> visual.updateCloudAnchor(cloudAnchor));
+        Log.d("ASADemo", (isNew ? "New" : "Repeated") + " discovery of anchor " + cloudAnchor.getIdentifier() + ", "
+                + discoveredAnchors.getNewCount() + " new and " + discoveredAnchors.getDuplicateCount() + " repeated so far");
+    }
+
+    private AnchorVisual createDiscoveredVisual(CloudSpatialAnchor cloudAnchor) {
         AnchorVisual visual = new AnchorVisual(arFragment, cloudAnchor);
         visual.setColor(this, GREEN);
-        Map<String, String> properties = cloudAnchor.getAppProperties();
-        if (properties.containsKey("Shape")) {
-            try {
-                AnchorVisual.Shape savedShape = AnchorVisual.Shape.valueOf(properties.get("Shape"));
-                visual.setShape(savedShape);
-            } catch (IllegalArgumentException ex) {
-                // Invalid shape property, keep default shape
-            }
-        }
+        // Missing or invalid shape properties give the default shape
+        visual.setShape(AnchorPropertiesCodec.get(cloudAnchor.getAppProperties(), AnchorVisual.SHAPE_PROPERTY));
         visual.render(arFragment);
+        return visual;
     }
 
     public void onBackClicked(View view) {
@@ -210,7 +343,7 @@ public class CoarseRelocActivity extends FragmentActivity
         }
     }
 
-    private void confirmAnchorDeletion(List<CloudSpatialAnchor> anchors) {
+    private void confirmAnchorDeletion(AnchorPageCursor<CloudSpatialAnchor> anchors) {
         // There might be hundreds of anchors found near device. Deleting them without
         // confirmation might be disruptive.
         // Keep it safe while show casing API usage.
@@ -220,17 +353,64 @@ public class CoarseRelocActivity extends FragmentActivity
 
             new AlertDialog.Builder(this)
                 .setTitle("Confirm deletion")
-                .setMessage(anchors.size() == 0
+                .setMessage(anchors.getCount() == 0
                         ? "No anchors found to delete."
-                        : "About to delete " + anchors.size() + " nearby anchors. Are you sure?")
+                        : "About to delete " + anchors.getCount() + " nearby anchors. Are you sure?")
                 .setPositiveButton(android.R.string.yes, (d, b) -> deleteAnchors(anchors))
                 .setNegativeButton(android.R.string.no, null).show();
         });
     }
 
-    private void deleteAnchors(List<CloudSpatialAnchor> anchors) {
-        for (CloudSpatialAnchor anchor : anchors) {
-            cloudAnchorManager.deleteAnchorAsync(anchor);
+    private void deleteAnchors(AnchorPageCursor<CloudSpatialAnchor> anchors) {
+        AzureSpatialAnchorsManager manager = cloudAnchorManager;
+        if (manager == null) {
+            return;
+        }
+        deletingAnchors = anchors;
+        deleteAnchors(manager, anchors, new AtomicInteger());
+    }
+
+    // Keeps going past anchors that fail to load or delete, and reports them at the end.
+    // Uses the manager the walk started with, and stops once onPause cancelled the walk.
+    private void deleteAnchors(AzureSpatialAnchorsManager manager, AnchorPageCursor<CloudSpatialAnchor> anchors,
+                               AtomicInteger failures) {
+        if (deletingAnchors != anchors) {
+            return;
         }
+        if (!anchors.hasNext()) {
+            deletingAnchors = null;
+            int failed = failures.get();
+            if (failed > 0) {
+                runOnUiThread(() -> Toast.makeText(this,
+                        "Failed to delete " + failed + " of " + anchors.getCount() + " anchors, check log",
+                        Toast.LENGTH_LONG).show());
+            }
+            return;
+        }
+
+        // One page at a time, the next page is only fetched once this one is deleted
+        anchors.nextPage()
+                .thenCompose(page -> {
+                    CompletableFuture<?>[] deletions = new CompletableFuture<?>[page.size()];
+                    for (int i = 0; i < page.size(); i++) {
+                        CloudSpatialAnchor anchor = page.get(i);
+                        if (anchor == null) {
+                            // Failed to load, logged by the manager
+                            failures.incrementAndGet();
+                            deletions[i] = CompletableFuture.completedFuture(null);
+                            continue;
+                        }
+                        deletions[i] = manager.deleteAnchorAsync(anchor)
+                                .handle((ignore, deleteEx) -> {
+                                    if (deleteEx != null) {
+                                        deleteEx.printStackTrace();
+                                        failures.incrementAndGet();
+                                    }
+                                    return null;
+                                });
+                    }
+                    return CompletableFuture.allOf(deletions);
+                })
+                .thenRun(() -> deleteAnchors(manager, anchors, failures));
     }
 }
@@ -5,10 +5,19 @@ package com.microsoft.sampleandroid;
 public class CoarseRelocSettings {
     /// Whitelist of Bluetooth-LE beacons used to find anchors and improve the locatability
     /// of existing anchors.
-    /// Add the UUIDs for your own Bluetooth beacons here to use them with Azure Spatial Anchors.
+    /// Add the UUIDs for your own Bluetooth beacons to assets/beacons.txt to use them with
+    /// Azure Spatial Anchors. These are only used when that file cannot be loaded.
     public static final String[] KNOWN_BLUETOOTH_PROXIMITY_UUIDS = {
         "61687109-905f-4436-91f8-e602f514c96d",
         "e1f54e02-1e23-44e0-9c3d-512eb56adec9",
         "01234567-8901-2345-6789-012345678903",
     };
+
+    /// Records the sensor statuses of each session to files/sensor-recordings, for replaying
+    /// them with ReplaySensorStatusModel.
+    public static final boolean RECORD_SENSOR_STATUS = false;
+
+    /// Records the session events of each session to files/session-events, for replaying
+    /// them with SessionEventLog.
+    public static final boolean RECORD_SESSION_EVENTS = false;
 }
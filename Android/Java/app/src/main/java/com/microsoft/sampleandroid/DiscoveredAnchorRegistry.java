@@ -0,0 +1,151 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Anchors found by watchers, one entry per anchor identifier.
+// Watchers report an anchor again every time they locate it, so without a registry each
+// re-detection would add another visual on top of the first. A repeat updates the
+// existing entry instead, and entries not located again for a while are evicted.
+// Entries are kept in the order they were last seen, so eviction only looks at the
+// stale ones at the front.
+// Only used on the UI thread.
+class DiscoveredAnchorRegistry<V> {
+    private static final long DEFAULT_MAX_UNSEEN_MILLIS = 5 * 60 * 1000;
+
+    private static final class Entry<V> {
+        final V value;
+        long lastSeenMillis;
+
+        Entry(V value, long lastSeenMillis) {
+            this.value = value;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>();
+    private final Collection<V> values = new ValuesView();
+    private long maxUnseenMillis = DEFAULT_MAX_UNSEEN_MILLIS;
+
+    private long newCount = 0;
+    private long duplicateCount = 0;
+    private long evictedCount = 0;
+
+    public DiscoveredAnchorRegistry() {
+        this(() -> System.nanoTime() / 1000000);
+    }
+
+    DiscoveredAnchorRegistry(LongSupplier clockMillis) {
+        this.clock = clockMillis;
+    }
+
+    // How long an anchor may go without being located again before it is evicted.
+    public void setMaxUnseenMillis(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("The unseen time must be positive.");
+        }
+        maxUnseenMillis = millis;
+    }
+
+    // Creates the value for a new identifier, or updates the existing one for a repeat.
+    // Returns true when the anchor is new.
+    public boolean discover(String identifier, Supplier<V> create, Consumer<V> update) {
+        long now = clock.getAsLong();
+        Entry<V> entry = entries.remove(identifier);
+        if (entry != null) {
+            // Back in at the end, the most recently seen
+            entry.lastSeenMillis = now;
+            entries.put(identifier, entry);
+            duplicateCount++;
+            update.accept(entry.value);
+            return false;
+        }
+        entries.put(identifier, new Entry<>(create.get(), now));
+        newCount++;
+        return true;
+    }
+
+    public V get(String identifier) {
+        Entry<V> entry = entries.get(identifier);
+        return entry == null ? null : entry.value;
+    }
+
+    // Removes anchors unseen for longer than the limit and hands each to the consumer.
+    public int evictUnseen(Consumer<V> evicted) {
+        long oldest = clock.getAsLong() - maxUnseenMillis;
+        int count = 0;
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (entry.lastSeenMillis >= oldest) {
+                // Everything after this was seen more recently
+                break;
+            }
+            iterator.remove();
+            evicted.accept(entry.value);
+            count++;
+        }
+        evictedCount += count;
+        return count;
+    }
+
+    public void clear(Consumer<V> removed) {
+        for (Entry<V> entry : entries.values()) {
+            removed.accept(entry.value);
+        }
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Live view of the values, least recently seen first
+    public Collection<V> values() {
+        return values;
+    }
+
+    public long getNewCount() {
+        return newCount;
+    }
+
+    // Discoveries of anchors already in the registry
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    private final class ValuesView extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            return new Iterator<V>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public V next() {
+                    return iterator.next().value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+// Spreads main thread work over frames, driven from the scene's update listener.
+// Tasks can be posted from any thread with a priority. Each frame runs them, highest
+// priority first, until the frame budget is used up, and leaves the rest for later frames.
+// At least one task runs per frame, and tasks deferred for too many frames run regardless
+// of the budget, so low priority work is never starved.
+// Frames that go over budget are recorded along with the task that pushed them over,
+// to point at the sources of jank.
+class FrameScheduler {
+    enum Priority {
+        High,
+        Normal,
+        Low,
+    }
+
+    private static final class Task {
+        final String name;
+        final Runnable runnable;
+        final long postedFrame;
+        volatile boolean superseded = false;
+
+        Task(String name, Runnable runnable, long postedFrame) {
+            this.name = name;
+            this.runnable = runnable;
+            this.postedFrame = postedFrame;
+        }
+    }
+
+    private static final long DEFAULT_BUDGET_NANOS = 4000000;
+    private static final int DEFAULT_MAX_DEFERRED_FRAMES = 30;
+
+    private final LongSupplier clock;
+    // One queue per priority, in priority order
+    private final List<ConcurrentLinkedQueue<Task>> queues;
+    // Pending postLatest tasks by name, a newer post supersedes the pending one
+    private final ConcurrentHashMap<String, Task> latest = new ConcurrentHashMap<>();
+
+    private volatile long budgetNanos = DEFAULT_BUDGET_NANOS;
+    private volatile int maxDeferredFrames = DEFAULT_MAX_DEFERRED_FRAMES;
+    private volatile long frame = 0;
+
+    // Only touched on the thread running frames
+    private long overrunFrameCount = 0;
+    private long deferredFrameCount = 0;
+    private long lastFrameNanos = 0;
+    private final HashMap<String, Integer> overrunsByTask = new HashMap<>();
+
+    public FrameScheduler() {
+        this(System::nanoTime);
+    }
+
+    FrameScheduler(LongSupplier clock) {
+        this.clock = clock;
+        queues = new ArrayList<>(Priority.values().length);
+        for (int i = 0; i < Priority.values().length; i++) {
+            queues.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    public void setBudgetMillis(float millis) {
+        budgetNanos = (long) (millis * 1000000);
+    }
+
+    public void setMaxDeferredFrames(int frames) {
+        maxDeferredFrames = frames;
+    }
+
+    public void post(Priority priority, String name, Runnable runnable) {
+        queues.get(priority.ordinal()).add(new Task(name, runnable, frame));
+    }
+
+    // Like post, but only the most recent task with this name runs, for status updates
+    // where intermediate values do not matter.
+    public void postLatest(Priority priority, String name, Runnable runnable) {
+        Task task = latest.compute(name, (key, previous) -> {
+            if (previous == null) {
+                return new Task(name, runnable, frame);
+            }
+            previous.superseded = true;
+            // Keeps the age of the update it replaces, or a task posted again every frame
+            // would never become overdue
+            return new Task(name, runnable, Math.min(previous.postedFrame, frame));
+        });
+        queues.get(priority.ordinal()).add(task);
+    }
+
+    // Runs one frame's worth of tasks, call from Scene.OnUpdateListener.
+    public void runFrame() {
+        long start = clock.getAsLong();
+        long currentFrame = frame;
+        String culprit = null;
+        boolean ranAny = false;
+
+        for (ConcurrentLinkedQueue<Task> queue : queues) {
+            Task task;
+            while ((task = queue.peek()) != null) {
+                boolean overdue = currentFrame - task.postedFrame >= maxDeferredFrames;
+                if (ranAny && !overdue && clock.getAsLong() - start >= budgetNanos) {
+                    break;
+                }
+                queue.poll();
+                if (task.superseded) {
+                    continue;
+                }
+                latest.remove(task.name, task);
+                task.runnable.run();
+                ranAny = true;
+                if (culprit == null && clock.getAsLong() - start > budgetNanos) {
+                    culprit = task.name;
+                }
+            }
+        }
+
+        long elapsed = clock.getAsLong() - start;
+        lastFrameNanos = elapsed;
+        if (culprit != null) {
+            overrunFrameCount++;
+            Integer count = overrunsByTask.get(culprit);
+            overrunsByTask.put(culprit, count == null ? 1 : count + 1);
+        }
+        for (ConcurrentLinkedQueue<Task> queue : queues) {
+            if (!queue.isEmpty()) {
+                deferredFrameCount++;
+                break;
+            }
+        }
+        frame = currentFrame + 1;
+    }
+
+    public int getPendingCount() {
+        int count = 0;
+        for (ConcurrentLinkedQueue<Task> queue : queues) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    public long getOverrunFrameCount() {
+        return overrunFrameCount;
+    }
+
+    // Frames that ended with work left over for later frames
+    public long getDeferredFrameCount() {
+        return deferredFrameCount;
+    }
+
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+
+    // How often each task was the one that pushed a frame over budget.
+    public Map<String, Integer> getOverrunsByTask() {
+        return new HashMap<>(overrunsByTask);
+    }
+}
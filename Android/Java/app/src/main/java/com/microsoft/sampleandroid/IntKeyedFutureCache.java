@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+// Small thread-safe cache of asynchronously loaded values keyed by a primitive int.
+// Concurrent requests for the same key share one load: the first caller starts it and
+// everybody gets the same future. Failed loads are dropped so the next request retries.
+// The cache holds at most `capacity` entries and evicts the least recently used one.
+// Keys live in a plain int array and are scanned linearly, which beats hashing and
+// boxing for the handful of entries this is meant for, such as material colors.
+class IntKeyedFutureCache<V> {
+    private final int[] keys;
+    private final Object[] values;
+    private final long[] lastUse;
+    private final IntFunction<CompletableFuture<V>> loader;
+
+    // Guarded by this
+    private int size = 0;
+    private long useCounter = 0;
+    private long hitCount = 0;
+    private long loadCount = 0;
+    private long evictionCount = 0;
+
+    public IntKeyedFutureCache(int capacity, IntFunction<CompletableFuture<V>> loader) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1.");
+        }
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.lastUse = new long[capacity];
+        this.loader = loader;
+    }
+
+    public CompletableFuture<V> get(int key) {
+        CompletableFuture<V> promise;
+        synchronized (this) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                hitCount++;
+                lastUse[index] = ++useCounter;
+                return valueAt(index);
+            }
+
+            promise = new CompletableFuture<>();
+            insert(key, promise);
+            loadCount++;
+        }
+
+        // Load outside the lock, the loader may be slow or call back into the cache
+        CompletableFuture<V> load;
+        try {
+            load = loader.apply(key);
+        } catch (RuntimeException e) {
+            load = new CompletableFuture<>();
+            load.completeExceptionally(e);
+        }
+        load.whenComplete((value, thrown) -> {
+            if (thrown != null) {
+                remove(key, promise);
+                promise.completeExceptionally(thrown);
+            } else {
+                promise.complete(value);
+            }
+        });
+        return promise;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getLoadCount() {
+        return loadCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < size; i++) {
+            values[i] = null;
+        }
+        size = 0;
+    }
+
+    private synchronized void remove(int key, CompletableFuture<V> expected) {
+        int index = indexOf(key);
+        if (index >= 0 && values[index] == expected) {
+            removeAt(index);
+        }
+    }
+
+    private void insert(int key, CompletableFuture<V> value) {
+        int index;
+        if (size < keys.length) {
+            index = size++;
+        } else {
+            index = 0;
+            for (int i = 1; i < size; i++) {
+                if (lastUse[i] < lastUse[index]) {
+                    index = i;
+                }
+            }
+            evictionCount++;
+        }
+        keys[index] = key;
+        values[index] = value;
+        lastUse[index] = ++useCounter;
+    }
+
+    private void removeAt(int index) {
+        int last = --size;
+        keys[index] = keys[last];
+        values[index] = values[last];
+        lastUse[index] = lastUse[last];
+        values[last] = null;
+    }
+
+    private int indexOf(int key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<V> valueAt(int index) {
+        return (CompletableFuture<V>) values[index];
+    }
+}
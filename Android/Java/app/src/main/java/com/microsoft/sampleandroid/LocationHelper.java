@@ -0,0 +1,34 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationManager;
+
+public class LocationHelper {
+    // The most accurate last known location of the enabled providers, null when there is
+    // none or the location permission is missing. Never waits for a fix.
+    public static Location getLastKnownLocation(Context context) {
+        if (!SensorPermissionsHelper.hasAllRequiredPermissionGranted(context)) {
+            return null;
+        }
+        LocationManager locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+        if (locationManager == null) {
+            return null;
+        }
+
+        Location best = null;
+        try {
+            for (String provider : locationManager.getProviders(true)) {
+                Location location = locationManager.getLastKnownLocation(provider);
+                if (location != null && (best == null || location.getAccuracy() < best.getAccuracy())) {
+                    best = location;
+                }
+            }
+        } catch (SecurityException e) {
+            return null;
+        }
+        return best;
+    }
+}
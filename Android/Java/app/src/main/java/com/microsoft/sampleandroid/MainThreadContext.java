@@ -5,15 +5,28 @@ package com.microsoft.sampleandroid;
 import android.os.Handler;
 import android.os.Looper;
 
+import java.util.concurrent.TimeUnit;
+
 class MainThreadContext {
+    // Leave most of a 60 fps frame to rendering
+    private static final long DRAIN_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+    private static final int SOFT_QUEUE_CAPACITY = 256;
+
     private static final Handler mainHandler = new Handler(Looper.getMainLooper());
     private static final Looper mainLooper = Looper.getMainLooper();
+    // Posts from other threads are batched into one Looper message per drain
+    private static final BatchingDispatcher dispatcher =
+            new BatchingDispatcher(mainHandler::post, DRAIN_BUDGET_NANOS, SOFT_QUEUE_CAPACITY);
 
     public static void runOnUiThread(Runnable runnable){
         if (mainLooper.isCurrentThread()) {
             runnable.run();
         } else {
-            mainHandler.post(runnable);
+            dispatcher.dispatch(runnable);
         }
     }
+
+    static BatchingDispatcher getDispatcher() {
+        return dispatcher;
+    }
 }
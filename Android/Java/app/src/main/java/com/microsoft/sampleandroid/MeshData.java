@@ -0,0 +1,80 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+// Triangle mesh in flat primitive buffers, ready to hand to the renderer.
+// Vertices are interleaved: position (3 floats), then the normal (3 floats) and the
+// texture coordinate (2 floats) when the model has them. The buffers may be views
+// into a memory-mapped MeshFile, so they are only ever read with absolute gets.
+class MeshData {
+    static final int POSITION_FLOATS = 3;
+    static final int NORMAL_FLOATS = 3;
+    static final int TEX_COORD_FLOATS = 2;
+
+    private final FloatBuffer vertices;
+    private final IntBuffer indices;
+    private final boolean hasNormals;
+    private final boolean hasTexCoords;
+    private final int stride;
+
+    public MeshData(FloatBuffer vertices, IntBuffer indices, boolean hasNormals, boolean hasTexCoords) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.hasNormals = hasNormals;
+        this.hasTexCoords = hasTexCoords;
+        this.stride = strideOf(hasNormals, hasTexCoords);
+    }
+
+    static int strideOf(boolean hasNormals, boolean hasTexCoords) {
+        return POSITION_FLOATS + (hasNormals ? NORMAL_FLOATS : 0) + (hasTexCoords ? TEX_COORD_FLOATS : 0);
+    }
+
+    public FloatBuffer getVertices() {
+        return vertices;
+    }
+
+    public IntBuffer getIndices() {
+        return indices;
+    }
+
+    public boolean hasNormals() {
+        return hasNormals;
+    }
+
+    public boolean hasTexCoords() {
+        return hasTexCoords;
+    }
+
+    // Floats per vertex
+    public int getStride() {
+        return stride;
+    }
+
+    // Offsets within a vertex, in floats
+    public int getNormalOffset() {
+        return POSITION_FLOATS;
+    }
+
+    public int getTexCoordOffset() {
+        return texCoordOffsetOf(hasNormals);
+    }
+
+    static int texCoordOffsetOf(boolean hasNormals) {
+        return POSITION_FLOATS + (hasNormals ? NORMAL_FLOATS : 0);
+    }
+
+    public int getVertexCount() {
+        return vertices.capacity() / stride;
+    }
+
+    public int getTriangleCount() {
+        return indices.capacity() / 3;
+    }
+
+    public long getSizeInBytes() {
+        return 4L * (vertices.capacity() + indices.capacity());
+    }
+}
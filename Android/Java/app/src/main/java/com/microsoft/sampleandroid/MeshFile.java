@@ -0,0 +1,113 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Compact binary form of a MeshData, written once and then memory-mapped on later runs.
+// Loading is a header check plus an mmap, the vertex and index buffers are views straight
+// into the mapping, so nothing is parsed. Sceneform only takes vertices as objects, so
+// the buffers are still converted once when the renderable is built.
+//
+// Layout, little endian:
+//   int   magic "ASAM"
+//   int   format version
+//   int   flags (1 = normals, 2 = texture coordinates)
+//   int   vertex count
+//   int   index count
+//   long  source stamp, identifies what the mesh was converted from
+//   float vertices[vertex count * stride], interleaved as in MeshData
+//   int   indices[index count]
+final class MeshFile {
+    private static final int MAGIC = 0x4d415341; // "ASAM" read as a little endian int
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    private static final int FLAG_NORMALS = 1;
+    private static final int FLAG_TEX_COORDS = 2;
+
+    private MeshFile() {
+    }
+
+    // Writes the mesh next to the target and then renames it, so readers never see half a file.
+    static void write(MeshData mesh, long sourceStamp, File file) throws IOException {
+        FloatBuffer vertices = mesh.getVertices();
+        IntBuffer indices = mesh.getIndices();
+        ByteBuffer buffer = ByteBuffer
+                .allocate(HEADER_SIZE + 4 * (vertices.capacity() + indices.capacity()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt((mesh.hasNormals() ? FLAG_NORMALS : 0) | (mesh.hasTexCoords() ? FLAG_TEX_COORDS : 0));
+        buffer.putInt(mesh.getVertexCount());
+        buffer.putInt(indices.capacity());
+        buffer.putLong(sourceStamp);
+        for (int i = 0; i < vertices.capacity(); i++) {
+            buffer.putFloat(vertices.get(i));
+        }
+        for (int i = 0; i < indices.capacity(); i++) {
+            buffer.putInt(indices.get(i));
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temporary)) {
+            output.write(buffer.array());
+            output.getFD().sync();
+        }
+        if (!temporary.renameTo(file)) {
+            temporary.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    // Maps the mesh file, or returns null if it is missing, from another format version,
+    // converted from a different source, or damaged.
+    static MeshData map(File file, long sourceStamp) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        MappedByteBuffer mapping;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mapping.capacity() < HEADER_SIZE
+                || mapping.getInt(0) != MAGIC
+                || mapping.getInt(4) != VERSION
+                || mapping.getLong(20) != sourceStamp) {
+            return null;
+        }
+        int flags = mapping.getInt(8);
+        int vertexCount = mapping.getInt(12);
+        int indexCount = mapping.getInt(16);
+        boolean hasNormals = (flags & FLAG_NORMALS) != 0;
+        boolean hasTexCoords = (flags & FLAG_TEX_COORDS) != 0;
+        int stride = MeshData.strideOf(hasNormals, hasTexCoords);
+        long vertexFloats = (long) vertexCount * stride;
+        if (vertexCount < 0 || indexCount < 0
+                || HEADER_SIZE + 4 * (vertexFloats + indexCount) != mapping.capacity()) {
+            return null;
+        }
+
+        mapping.position(HEADER_SIZE);
+        FloatBuffer vertices = mapping.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        vertices.limit((int) vertexFloats);
+        vertices = vertices.slice();
+
+        mapping.position(HEADER_SIZE + (int) (4 * vertexFloats));
+        IntBuffer indices = mapping.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        return new MeshData(vertices, indices, hasNormals, hasTexCoords);
+    }
+}
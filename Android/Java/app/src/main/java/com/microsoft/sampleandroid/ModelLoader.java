@@ -0,0 +1,157 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.Material;
+import com.google.ar.sceneform.rendering.RenderableDefinition;
+import com.google.ar.sceneform.rendering.Vertex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Loads OBJ models from the app's assets on a background thread.
+// The first run parses the text into a MeshData with ObjMeshParser and saves it as a MeshFile in app storage.
+// Later runs memory-map that file instead of parsing again, until the app is updated.
+// Meshes stay cached by asset path for the lifetime of the process. Converting them
+// into Sceneform vertices also happens here, so the UI thread only builds the
+// renderable from a finished definition.
+final class ModelLoader {
+    private static final String TAG = "ModelLoader";
+    private static final String MESH_DIRECTORY = "meshes";
+
+    private static final ConcurrentHashMap<String, CompletableFuture<MeshData>> meshes = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Long> parseMillis = new ConcurrentHashMap<>();
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ModelLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ModelLoader() {
+    }
+
+    // Returns the mesh for the asset, parsing it in the background the first time.
+    static CompletableFuture<MeshData> load(Context context, String assetPath) {
+        Context applicationContext = context.getApplicationContext();
+        CompletableFuture<MeshData> mesh = meshes.computeIfAbsent(assetPath,
+                path -> CompletableFuture.supplyAsync(() -> loadAsset(applicationContext, path), executor));
+        mesh.exceptionally(ex -> {
+            // Let a later request try again
+            meshes.remove(assetPath, mesh);
+            return null;
+        });
+        return mesh;
+    }
+
+    // How long parsing the asset took, or -1 if it was not parsed in this process.
+    static long getParseMillis(String assetPath) {
+        Long millis = parseMillis.get(assetPath);
+        return millis != null ? millis : -1;
+    }
+
+    // Builds the renderer's description of the mesh on the loader thread. Only turning the
+    // definition into a renderable has to happen on the UI thread.
+    static CompletableFuture<RenderableDefinition> buildDefinition(MeshData mesh, Material material) {
+        return CompletableFuture.supplyAsync(() -> toRenderableDefinition(mesh, material), executor);
+    }
+
+    private static RenderableDefinition toRenderableDefinition(MeshData mesh, Material material) {
+        FloatBuffer data = mesh.getVertices();
+        int stride = mesh.getStride();
+        int vertexCount = mesh.getVertexCount();
+
+        List<Vertex> vertices = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            int offset = i * stride;
+            Vertex.Builder vertex = Vertex.builder()
+                    .setPosition(new Vector3(data.get(offset), data.get(offset + 1), data.get(offset + 2)));
+            if (mesh.hasNormals()) {
+                int normal = offset + mesh.getNormalOffset();
+                vertex.setNormal(new Vector3(data.get(normal), data.get(normal + 1), data.get(normal + 2)));
+            }
+            if (mesh.hasTexCoords()) {
+                int texCoord = offset + mesh.getTexCoordOffset();
+                vertex.setUvCoordinate(new Vertex.UvCoordinate(data.get(texCoord), data.get(texCoord + 1)));
+            }
+            vertices.add(vertex.build());
+        }
+
+        IntBuffer indices = mesh.getIndices();
+        List<Integer> triangleIndices = new ArrayList<>(indices.capacity());
+        for (int i = 0; i < indices.capacity(); i++) {
+            triangleIndices.add(indices.get(i));
+        }
+
+        RenderableDefinition.Submesh submesh = RenderableDefinition.Submesh.builder()
+                .setTriangleIndices(triangleIndices)
+                .setMaterial(material)
+                .build();
+        return RenderableDefinition.builder()
+                .setVertices(vertices)
+                .setSubmeshes(Collections.singletonList(submesh))
+                .build();
+    }
+
+    private static MeshData loadAsset(Context context, String assetPath) {
+        long start = System.nanoTime();
+        File meshFile = new File(new File(context.getFilesDir(), MESH_DIRECTORY), assetPath.replace('/', '_') + ".mesh");
+        long sourceStamp = getSourceStamp(context);
+
+        MeshData mesh = null;
+        try {
+            mesh = MeshFile.map(meshFile, sourceStamp);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not map " + meshFile + ", parsing " + assetPath + " again", e);
+        }
+        if (mesh != null) {
+            Log.d(TAG, "Mapped " + assetPath + " in " + (System.nanoTime() - start) / 1000000 + " ms: "
+                    + mesh.getVertexCount() + " vertices, " + mesh.getSizeInBytes() + " bytes");
+            return mesh;
+        }
+
+        try (InputStream input = context.getAssets().open(assetPath)) {
+            mesh = ObjMeshParser.parse(input);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to load model " + assetPath, e);
+            throw new CompletionException(e);
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        parseMillis.put(assetPath, millis);
+        Log.d(TAG, "Parsed " + assetPath + " in " + millis + " ms: " + mesh.getVertexCount() + " vertices, "
+                + mesh.getTriangleCount() + " triangles, " + mesh.getSizeInBytes() + " bytes");
+
+        try {
+            meshFile.getParentFile().mkdirs();
+            MeshFile.write(mesh, sourceStamp, meshFile);
+        } catch (IOException e) {
+            // Only costs the next run a parse
+            Log.w(TAG, "Could not save " + meshFile, e);
+        }
+        return mesh;
+    }
+
+    // Changes whenever the app, and with it the assets, is installed or updated.
+    private static long getSourceStamp(Context context) {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Location;
+
+import java.util.Locale;
+
+// Persists the tuned near device search per location in shared preferences.
+// Locations are cells of about 100 meters around the last known device location, so
+// every floor of a building shares its values; without a location everything shares one.
+class NearDeviceSearchStore {
+    private static final String PREFERENCES_NAME = "near_device_search";
+    private static final String UNKNOWN_LOCATION = "unknown";
+    // Roughly 100 meters of latitude
+    private static final double CELL_DEGREES = 0.001;
+
+    private final Context context;
+    private final SharedPreferences preferences;
+
+    public NearDeviceSearchStore(Context context) {
+        this.context = context.getApplicationContext();
+        this.preferences = this.context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    public AdaptiveNearDeviceSearch loadForCurrentLocation() {
+        String locationKey = getLocationKey();
+        return new AdaptiveNearDeviceSearch(
+                locationKey,
+                preferences.getFloat(locationKey + ".distance", AdaptiveNearDeviceSearch.DEFAULT_DISTANCE_METERS),
+                preferences.getInt(locationKey + ".maxResults", AdaptiveNearDeviceSearch.DEFAULT_RESULT_COUNT));
+    }
+
+    public void save(AdaptiveNearDeviceSearch search) {
+        preferences.edit()
+                .putFloat(search.getLocationKey() + ".distance", search.getDistanceInMeters())
+                .putInt(search.getLocationKey() + ".maxResults", search.getMaxResultCount())
+                .apply();
+    }
+
+    private String getLocationKey() {
+        Location location = LocationHelper.getLastKnownLocation(context);
+        if (location == null) {
+            return UNKNOWN_LOCATION;
+        }
+        return String.format(Locale.US, "%d,%d",
+                (long) Math.floor(location.getLatitude() / CELL_DEGREES),
+                (long) Math.floor(location.getLongitude() / CELL_DEGREES));
+    }
+}
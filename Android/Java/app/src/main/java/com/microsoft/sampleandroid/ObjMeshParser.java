@@ -0,0 +1,54 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import de.javagl.obj.Obj;
+import de.javagl.obj.ObjData;
+import de.javagl.obj.ObjReader;
+import de.javagl.obj.ObjUtils;
+
+// Parses OBJ text into a MeshData. Kept apart from ModelLoader, which needs the
+// Android context and Sceneform, so the parser runs in plain JVM tests.
+final class ObjMeshParser {
+    private ObjMeshParser() {
+    }
+
+    static MeshData parse(InputStream input) throws IOException {
+        // Triangulated, with one index per vertex shared by positions, normals and texture coordinates
+        Obj obj = ObjUtils.convertToRenderable(ObjReader.read(input));
+        IntBuffer indices = ObjData.getFaceVertexIndices(obj, 3);
+        FloatBuffer positions = ObjData.getVertices(obj);
+        FloatBuffer normals = obj.getNumNormals() > 0 ? ObjData.getNormals(obj) : null;
+        FloatBuffer texCoords = obj.getNumTexCoords() > 0 ? ObjData.getTexCoords(obj, 2) : null;
+
+        // Interleave the attributes into one array, see MeshData
+        boolean hasNormals = normals != null;
+        boolean hasTexCoords = texCoords != null;
+        int stride = MeshData.strideOf(hasNormals, hasTexCoords);
+        int texCoordOffset = MeshData.texCoordOffsetOf(hasNormals);
+        int vertexCount = obj.getNumVertices();
+        float[] vertices = new float[vertexCount * stride];
+        for (int i = 0; i < vertexCount; i++) {
+            int offset = i * stride;
+            for (int j = 0; j < MeshData.POSITION_FLOATS; j++) {
+                vertices[offset + j] = positions.get(MeshData.POSITION_FLOATS * i + j);
+            }
+            if (hasNormals) {
+                for (int j = 0; j < MeshData.NORMAL_FLOATS; j++) {
+                    vertices[offset + MeshData.POSITION_FLOATS + j] = normals.get(MeshData.NORMAL_FLOATS * i + j);
+                }
+            }
+            if (hasTexCoords) {
+                for (int j = 0; j < MeshData.TEX_COORD_FLOATS; j++) {
+                    vertices[offset + texCoordOffset + j] = texCoords.get(MeshData.TEX_COORD_FLOATS * i + j);
+                }
+            }
+        }
+        return new MeshData(FloatBuffer.wrap(vertices), indices, hasNormals, hasTexCoords);
+    }
+}
@@ -0,0 +1,78 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+// Thread-safe pool of reusable objects with a configurable cap.
+// acquire() hands out the most recently released object, which is the most likely to be
+// warm, and only falls back to the factory when the pool is empty. Objects released
+// while the pool is full are dropped and left to the garbage collector.
+// Resetting an object is up to the caller, before it is released.
+class ObjectPool<T> {
+    private final ArrayDeque<T> idle = new ArrayDeque<>();
+    private int maxSize;
+
+    // Guarded by this
+    private long hitCount = 0;
+    private long allocationCount = 0;
+    private long dropCount = 0;
+
+    public ObjectPool(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The pool size cannot be negative.");
+        }
+        this.maxSize = maxSize;
+        while (idle.size() > maxSize) {
+            idle.pollLast();
+            dropCount++;
+        }
+    }
+
+    public T acquire(Supplier<T> factory) {
+        synchronized (this) {
+            T pooled = idle.pollFirst();
+            if (pooled != null) {
+                hitCount++;
+                return pooled;
+            }
+            allocationCount++;
+        }
+        return factory.get();
+    }
+
+    // Returns the object to the pool. Returns false if the pool was full and it was dropped.
+    public synchronized boolean release(T object) {
+        if (idle.size() >= maxSize) {
+            dropCount++;
+            return false;
+        }
+        idle.addFirst(object);
+        return true;
+    }
+
+    public synchronized void clear() {
+        idle.clear();
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getAllocationCount() {
+        return allocationCount;
+    }
+
+    public synchronized long getDropCount() {
+        return dropCount;
+    }
+}
@@ -0,0 +1,187 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.rendering.Material;
+import com.google.ar.sceneform.rendering.ModelRenderable;
+import com.google.ar.sceneform.rendering.Renderable;
+import com.google.ar.sceneform.rendering.ShapeFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Process-wide cache of anchor renderables keyed by shape.
+// ShapeFactory builds a new mesh on every call, so without the cache hundreds of
+// located anchors end up with hundreds of identical meshes. The cache keeps one
+// prototype per shape and hands out copies made with makeCopy(), which share the
+// prototype's mesh data and only carry their own material slots, so each copy gets the
+// caller's material and every color shares the same mesh.
+// Least recently used prototypes are evicted once the cache is full.
+// Distant anchors use a low detail variant, a box with the bounds of the shape.
+// Loaded models are cached the same way, keyed by mesh, but building them is
+// asynchronous so the cache hands out the pending prototype and callers set their
+// material on the copy. A failed build is not reused, the next request tries again.
+// ShapeFactory must run on the UI thread, so the cache is only used from there.
+final class RenderableCache {
+    private static final int MAX_ENTRIES = 32;
+
+    private static final class Key {
+        private final AnchorVisual.Shape shape;
+        private final boolean lowDetail;
+
+        Key(AnchorVisual.Shape shape, boolean lowDetail) {
+            this.shape = shape;
+            this.lowDetail = lowDetail;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return shape == other.shape && lowDetail == other.lowDetail;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * shape.hashCode() + (lowDetail ? 1 : 0);
+        }
+    }
+
+    private static final LinkedHashMap<Key, Renderable> prototypes =
+            new LinkedHashMap<Key, Renderable>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Renderable> eldest) {
+                    if (size() > MAX_ENTRIES) {
+                        evictionCount++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    // Meshes are shared instances, so they key by identity
+    private static final LinkedHashMap<MeshData, CompletableFuture<ModelRenderable>> modelPrototypes =
+            new LinkedHashMap<MeshData, CompletableFuture<ModelRenderable>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<MeshData, CompletableFuture<ModelRenderable>> eldest) {
+                    if (size() > MAX_ENTRIES) {
+                        evictionCount++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private static long hitCount = 0;
+    private static long missCount = 0;
+    private static long evictionCount = 0;
+
+    private RenderableCache() {
+    }
+
+    // Returns a renderable for the shape with the material that the caller may attach to a node.
+    static Renderable obtain(AnchorVisual.Shape shape, Material material) {
+        return obtain(shape, material, false);
+    }
+
+    static Renderable obtain(AnchorVisual.Shape shape, Material material, boolean lowDetail) {
+        Key key = new Key(shape, lowDetail);
+        Renderable prototype = prototypes.get(key);
+        if (prototype != null) {
+            hitCount++;
+        } else {
+            missCount++;
+            prototype = lowDetail ? createLowDetailRenderable(shape, material) : createRenderable(shape, material);
+            prototypes.put(key, prototype);
+        }
+        Renderable renderable = prototype.makeCopy();
+        // The prototype carries the material of whoever created it
+        renderable.setMaterial(material);
+        return renderable;
+    }
+
+    // Returns the prototype for the mesh, callers attach prototype.makeCopy() with their own
+    // material. The material only goes into the definition of a new prototype.
+    static CompletableFuture<ModelRenderable> obtainModel(MeshData mesh, Material material) {
+        CompletableFuture<ModelRenderable> prototype = modelPrototypes.get(mesh);
+        if (prototype != null && !prototype.isCompletedExceptionally()) {
+            hitCount++;
+            return prototype;
+        }
+        missCount++;
+        // The definition is built on the loader thread, the renderable on the UI thread
+        prototype = ModelLoader.buildDefinition(mesh, material).thenComposeAsync(
+                definition -> ModelRenderable.builder().setSource(definition).build(),
+                MainThreadContext::runOnUiThread);
+        modelPrototypes.put(mesh, prototype);
+        return prototype;
+    }
+
+    static long getHitCount() {
+        return hitCount;
+    }
+
+    static long getMissCount() {
+        return missCount;
+    }
+
+    static long getEvictionCount() {
+        return evictionCount;
+    }
+
+    static int size() {
+        return prototypes.size() + modelPrototypes.size();
+    }
+
+    static void clear() {
+        prototypes.clear();
+        modelPrototypes.clear();
+    }
+
+    private static Renderable createLowDetailRenderable(AnchorVisual.Shape shape, Material material) {
+        switch (shape) {
+            case Sphere:
+                return ShapeFactory.makeCube(
+                        new Vector3(0.2f, 0.2f, 0.2f),
+                        new Vector3(0.0f, 0.1f, 0.0f),
+                        material);
+            case Cube:
+                // Already as cheap as it gets
+                return createRenderable(shape, material);
+            case Cylinder:
+                return ShapeFactory.makeCube(
+                        new Vector3(0.175f, 0.175f, 0.175f),
+                        new Vector3(0.0f, 0.0875f, 0.0f),
+                        material);
+            default:
+                throw new IllegalStateException("Invalid shape");
+        }
+    }
+
+    private static Renderable createRenderable(AnchorVisual.Shape shape, Material material) {
+        switch (shape) {
+            case Sphere:
+                return ShapeFactory.makeSphere(
+                        0.1f,
+                        new Vector3(0.0f, 0.1f, 0.0f),
+                        material);
+            case Cube:
+                return ShapeFactory.makeCube(
+                        new Vector3(0.161f, 0.161f, 0.161f),
+                        new Vector3(0.0f, 0.0805f, 0.0f),
+                        material);
+            case Cylinder:
+                return ShapeFactory.makeCylinder(
+                        0.0874f,
+                        0.175f,
+                        new Vector3(0.0f, 0.0875f, 0.0f),
+                        material);
+            default:
+                throw new IllegalStateException("Invalid shape");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.function.LongSupplier;
+
+// Plays a SensorRecording back as a SensorStatusModel.
+// The statuses follow the given clock, in milliseconds since the replay started, so a
+// test or benchmark that drives the clock itself sees the same statuses on every run.
+// The default clock replays in real time from construction.
+class ReplaySensorStatusModel implements SensorStatusModel {
+    private final SensorRecording recording;
+    private final LongSupplier clock;
+    private final long startMillis;
+    private volatile float speed = 1;
+
+    public ReplaySensorStatusModel(SensorRecording recording) {
+        this(recording, () -> System.nanoTime() / 1000000);
+    }
+
+    ReplaySensorStatusModel(SensorRecording recording, LongSupplier clockMillis) {
+        this.recording = recording;
+        this.clock = clockMillis;
+        this.startMillis = clockMillis.getAsLong();
+    }
+
+    // Plays faster than recorded, e.g. 10 to go through a ten minute walk in a minute.
+    public void setSpeed(float speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The speed must be positive.");
+        }
+        this.speed = speed;
+    }
+
+    // True once every recorded change has been played.
+    public boolean isFinished() {
+        return getPositionMillis() >= recording.getDurationMillis();
+    }
+
+    public long getPositionMillis() {
+        return (long) ((clock.getAsLong() - startMillis) * (double) speed);
+    }
+
+    @Override
+    public SensorStatus getGeoLocationStatus() {
+        return recording.getGeoLocationStatusAt(getPositionMillis());
+    }
+
+    @Override
+    public SensorStatus getWifiSignalStatus() {
+        return recording.getWifiStatusAt(getPositionMillis());
+    }
+
+    @Override
+    public SensorStatus getBluetoothSignalStatus() {
+        return recording.getBluetoothStatusAt(getPositionMillis());
+    }
+}
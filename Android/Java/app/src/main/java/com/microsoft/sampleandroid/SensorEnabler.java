@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothAdapter;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.wifi.WifiManager;
+
+import com.microsoft.azure.spatialanchors.PlatformLocationProvider;
+import com.microsoft.azure.spatialanchors.SensorCapabilities;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Enables the allowed sensors without blocking the caller.
+// Turning a radio on takes from milliseconds to seconds, so instead of toggling radios
+// and checking them on the main thread, the radios are switched on a background thread
+// and each sensor is enabled on the location provider when its radio reports that it is
+// on. Geo location needs no radio and is configured right away.
+// A radio that is not on within the timeout stays disabled.
+class SensorEnabler {
+    private static final long RADIO_TIMEOUT_MILLIS = 10000;
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SensorEnabler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Starts enabling the allowed sensors, cancel the readiness when the provider goes away.
+    public static SensorReadiness enableAllowedSensors(Context context, PlatformLocationProvider locationProvider) {
+        Context applicationContext = context.getApplicationContext();
+        SensorCapabilities sensors = locationProvider.getSensors();
+        SensorReadiness readiness = new SensorReadiness();
+
+        boolean isGeoLocationAllowed = SensorPermissionsHelper.hasAnyLocationPermission(applicationContext);
+        sensors.setGeoLocationEnabled(isGeoLocationAllowed);
+        readiness.complete(SensorReadiness.Sensor.GeoLocation, isGeoLocationAllowed);
+
+        // Radios are only enabled on the provider once they are on
+        sensors.setWifiEnabled(false);
+        sensors.setBluetoothEnabled(false);
+
+        WifiManager wifiManager = (WifiManager) applicationContext.getSystemService(Context.WIFI_SERVICE);
+        if (wifiManager != null && SensorPermissionsHelper.isWifiAllowed(applicationContext)) {
+            enableRadio(applicationContext, readiness, SensorReadiness.Sensor.Wifi,
+                    WifiManager.WIFI_STATE_CHANGED_ACTION,
+                    intent -> intent.getIntExtra(WifiManager.EXTRA_WIFI_STATE, -1) == WifiManager.WIFI_STATE_ENABLED,
+                    wifiManager::isWifiEnabled,
+                    () -> wifiManager.setWifiEnabled(true),
+                    sensors::setWifiEnabled);
+        } else {
+            readiness.complete(SensorReadiness.Sensor.Wifi, false);
+        }
+
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        if (adapter != null && SensorPermissionsHelper.isBluetoothAllowed(applicationContext)) {
+            enableRadio(applicationContext, readiness, SensorReadiness.Sensor.Bluetooth,
+                    BluetoothAdapter.ACTION_STATE_CHANGED,
+                    intent -> intent.getIntExtra(BluetoothAdapter.EXTRA_STATE, -1) == BluetoothAdapter.STATE_ON,
+                    adapter::isEnabled,
+                    () -> enableBluetooth(adapter),
+                    sensors::setBluetoothEnabled);
+        } else {
+            readiness.complete(SensorReadiness.Sensor.Bluetooth, false);
+        }
+
+        return readiness;
+    }
+
+    private static void enableRadio(Context context, SensorReadiness readiness, SensorReadiness.Sensor sensor,
+                                    String stateChangedAction, Predicate<Intent> isOnIntent,
+                                    BooleanSupplier isOn, Runnable turnOn, Consumer<Boolean> configure) {
+        // Listen before turning the radio on, so the change cannot slip by
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (isOnIntent.test(intent)) {
+                    readiness.complete(sensor, true);
+                }
+            }
+        };
+        context.registerReceiver(receiver, new IntentFilter(stateChangedAction));
+        ScheduledFuture<?> timeout = executor.schedule(
+                () -> readiness.complete(sensor, false), RADIO_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        readiness.get(sensor).thenAccept(available -> {
+            timeout.cancel(false);
+            context.unregisterReceiver(receiver);
+            MainThreadContext.runOnUiThread(() -> configure.accept(available));
+        });
+
+        executor.execute(() -> {
+            if (!isOn.getAsBoolean()) {
+                turnOn.run();
+            }
+            // Already on, or switched on synchronously, no broadcast will come
+            if (isOn.getAsBoolean()) {
+                readiness.complete(sensor, true);
+            }
+        });
+    }
+
+    @SuppressLint("MissingPermission")
+    private static void enableBluetooth(BluetoothAdapter adapter) {
+        adapter.enable();
+    }
+}
@@ -3,17 +3,11 @@
 package com.microsoft.sampleandroid;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.app.Activity;
-import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.net.wifi.WifiManager;
 import android.support.v4.app.ActivityCompat;
 
-import com.microsoft.azure.spatialanchors.PlatformLocationProvider;
-import com.microsoft.azure.spatialanchors.SensorCapabilities;
-
 public class SensorPermissionsHelper {
 
     enum PermissionsResult {
@@ -39,33 +33,21 @@ public class SensorPermissionsHelper {
         return hasAllRequiredPermissionGranted(activity);
     }
 
-    public static void enableAllowedSensors(Context context, PlatformLocationProvider locationProvider) {
-        // Retrieve permissions granted by the user
-        boolean hasFineLocationPermission = hasPermission(context, Manifest.permission.ACCESS_FINE_LOCATION);
-        boolean hasAccessCoarseLocationPermission = hasPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION);
-        boolean hasAnyLocationPermission = hasFineLocationPermission || hasAccessCoarseLocationPermission;
-        boolean hasAccessWifiStatePermission = hasPermission(context, Manifest.permission.ACCESS_WIFI_STATE);
-        boolean hasChangeWifiStatePermission = hasPermission(context, Manifest.permission.CHANGE_WIFI_STATE);
-        boolean hasBluetoothPermission = hasPermission(context, Manifest.permission.BLUETOOTH);
-        boolean hasBluetoothAdminPermission = hasPermission(context, Manifest.permission.BLUETOOTH_ADMIN);
-
-        // Try to turn on Wi-Fi, if allowed
-        boolean isWifiAllowed = hasAnyLocationPermission
-                && hasAccessWifiStatePermission
-                && hasChangeWifiStatePermission;
-        boolean isWifiOn = isWifiAllowed && tryTurnOnWifi(context);
+    public static boolean hasAnyLocationPermission(Context context) {
+        return hasPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                || hasPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION);
+    }
 
-        // Try to turn on Bluetooth, if allowed
-        boolean isBluetoothAllowed = hasAnyLocationPermission
-                && hasBluetoothPermission
-                && hasBluetoothAdminPermission;
-        boolean isBluetoothOn = isBluetoothAllowed && tryTurnOnBluetooth();
+    public static boolean isWifiAllowed(Context context) {
+        return hasAnyLocationPermission(context)
+                && hasPermission(context, Manifest.permission.ACCESS_WIFI_STATE)
+                && hasPermission(context, Manifest.permission.CHANGE_WIFI_STATE);
+    }
 
-        // Configure location provider to use the allowed sensors
-        SensorCapabilities sensors = locationProvider.getSensors();
-        sensors.setGeoLocationEnabled(hasAnyLocationPermission);
-        sensors.setWifiEnabled(isWifiOn);
-        sensors.setBluetoothEnabled(isBluetoothOn);
+    public static boolean isBluetoothAllowed(Context context) {
+        return hasAnyLocationPermission(context)
+                && hasPermission(context, Manifest.permission.BLUETOOTH)
+                && hasPermission(context, Manifest.permission.BLUETOOTH_ADMIN);
     }
 
     public static boolean hasAllRequiredPermissionGranted(Context context) {
@@ -83,27 +65,4 @@ public class SensorPermissionsHelper {
     private static boolean hasPermission(Context context, String manifestPermission) {
         return ActivityCompat.checkSelfPermission(context, manifestPermission) == PackageManager.PERMISSION_GRANTED;
     }
-
-    private static boolean tryTurnOnWifi(Context context) {
-        WifiManager wifiManager = (WifiManager)context.getSystemService(Context.WIFI_SERVICE);
-        if (wifiManager == null) {
-            return false;
-        }
-        if (!wifiManager.isWifiEnabled()) {
-            wifiManager.setWifiEnabled(true);
-        }
-        return wifiManager.isWifiEnabled();
-    }
-
-    @SuppressLint("MissingPermission")
-    private static boolean tryTurnOnBluetooth() {
-        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
-        if (adapter == null) {
-            return false;
-        }
-        if (!adapter.isEnabled()) {
-            adapter.enable();
-        }
-        return adapter.isEnabled();
-    }
 }
@@ -0,0 +1,86 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+// When each sensor became usable after sensors were enabled, or that it never will.
+// Every sensor has a future that completes with true once the sensor is on and
+// configured, or false when it is not allowed, missing or did not come up in time.
+// The time from the start to each completion is kept, to see which radio holds up
+// coarse relocalization.
+class SensorReadiness {
+    enum Sensor {
+        GeoLocation,
+        Wifi,
+        Bluetooth,
+    }
+
+    private final LongSupplier clock;
+    private final long startMillis;
+    private final List<CompletableFuture<Boolean>> futures;
+    private final long[] latencyMillis;
+
+    public SensorReadiness() {
+        this(() -> System.nanoTime() / 1000000);
+    }
+
+    SensorReadiness(LongSupplier clockMillis) {
+        this.clock = clockMillis;
+        this.startMillis = clockMillis.getAsLong();
+        int count = Sensor.values().length;
+        futures = new ArrayList<>(count);
+        latencyMillis = new long[count];
+        for (int i = 0; i < count; i++) {
+            futures.add(new CompletableFuture<>());
+            latencyMillis[i] = -1;
+        }
+    }
+
+    // A dependent of the sensor's future, so only complete() can settle the sensor.
+    public CompletableFuture<Boolean> get(Sensor sensor) {
+        return futures.get(sensor.ordinal()).thenApply(available -> available);
+    }
+
+    // Completes when every sensor is ready or has given up.
+    public CompletableFuture<Void> all() {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // Settles the sensor, only the first call counts. Returns whether this call settled it.
+    public boolean complete(Sensor sensor, boolean available) {
+        int index = sensor.ordinal();
+        synchronized (latencyMillis) {
+            if (latencyMillis[index] != -1) {
+                return false;
+            }
+            // Set before completing so dependents see it
+            latencyMillis[index] = clock.getAsLong() - startMillis;
+        }
+        // Outside the lock, dependents run on this thread. Nothing else can complete the
+        // future, so the call that recorded the latency always settles the sensor.
+        futures.get(index).complete(available);
+        return true;
+    }
+
+    // Gives up on every sensor that is not ready yet.
+    public void cancel() {
+        for (Sensor sensor : Sensor.values()) {
+            complete(sensor, false);
+        }
+    }
+
+    // Milliseconds from the start until the sensor settled, -1 while pending.
+    public long getLatencyMillis(Sensor sensor) {
+        synchronized (latencyMillis) {
+            return latencyMillis[sensor.ordinal()];
+        }
+    }
+
+    public boolean isAvailable(Sensor sensor) {
+        return futures.get(sensor.ordinal()).getNow(false);
+    }
+}
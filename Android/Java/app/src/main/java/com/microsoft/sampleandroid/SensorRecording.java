@@ -0,0 +1,163 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+// Timestamped track of sensor statuses, recorded on a device and replayed anywhere.
+// Listen to a SensorStatusView to record, then write the track to a file. Reading it
+// back and wrapping it in a ReplaySensorStatusModel feeds the same statuses at the same
+// times to code that takes a SensorStatusModel, so coarse relocalization logic can be
+// measured repeatably on a plain JVM.
+// Only changes are stored, a varint time delta and one status byte each, so a long
+// session is a few hundred bytes.
+class SensorRecording implements SensorStatusListener {
+    private static final int MAGIC = 0x41534152; // "ASAR"
+    private static final int VERSION = 1;
+
+    private final LongSupplier clock;
+    private final long startMillis;
+    // Guarded by this, milliseconds since the start and packed statuses
+    private long[] times = new long[16];
+    private byte[] statuses = new byte[16];
+    private int count = 0;
+
+    public SensorRecording() {
+        this(() -> System.nanoTime() / 1000000);
+    }
+
+    SensorRecording(LongSupplier clockMillis) {
+        this.clock = clockMillis;
+        this.startMillis = clockMillis.getAsLong();
+    }
+
+    @Override
+    public void onSensorStatusChanged(SensorStatus geoLocation, SensorStatus wifi, SensorStatus bluetooth) {
+        append(clock.getAsLong() - startMillis, geoLocation, wifi, bluetooth);
+    }
+
+    // Adds a status at the given offset, offsets must not decrease. Repeats are dropped.
+    public synchronized void append(long timeMillis, SensorStatus geoLocation, SensorStatus wifi, SensorStatus bluetooth) {
+        if (count > 0 && timeMillis < times[count - 1]) {
+            throw new IllegalArgumentException("Sensor statuses must be recorded in order.");
+        }
+        byte status = (byte) (geoLocation.ordinal() << 4 | wifi.ordinal() << 2 | bluetooth.ordinal());
+        if (count > 0 && statuses[count - 1] == status) {
+            return;
+        }
+        if (count == times.length) {
+            times = Arrays.copyOf(times, count * 2);
+            statuses = Arrays.copyOf(statuses, count * 2);
+        }
+        times[count] = timeMillis;
+        statuses[count] = status;
+        count++;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    // Offset of the last change
+    public synchronized long getDurationMillis() {
+        return count == 0 ? 0 : times[count - 1];
+    }
+
+    public SensorStatus getGeoLocationStatusAt(long timeMillis) {
+        return statusAt(timeMillis, 4);
+    }
+
+    public SensorStatus getWifiStatusAt(long timeMillis) {
+        return statusAt(timeMillis, 2);
+    }
+
+    public SensorStatus getBluetoothStatusAt(long timeMillis) {
+        return statusAt(timeMillis, 0);
+    }
+
+    public synchronized void write(OutputStream stream) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeInt(count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarLong(output, times[i] - previous);
+            output.writeByte(statuses[i]);
+            previous = times[i];
+        }
+        output.flush();
+    }
+
+    public static SensorRecording read(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a sensor recording.");
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported sensor recording version " + version + ".");
+        }
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt sensor recording.");
+        }
+
+        SensorRecording recording = new SensorRecording(() -> 0);
+        SensorStatus[] values = SensorStatus.values();
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            time += readVarLong(input);
+            int status = input.readUnsignedByte();
+            if (status >> 6 != 0) {
+                throw new IOException("Corrupt sensor recording.");
+            }
+            recording.append(time, values[status >> 4 & 3], values[status >> 2 & 3], values[status & 3]);
+        }
+        return recording;
+    }
+
+    // Indeterminate before the first recorded status
+    private synchronized SensorStatus statusAt(long timeMillis, int shift) {
+        int index = Arrays.binarySearch(times, 0, count, timeMillis);
+        if (index < 0) {
+            // The last change before the time
+            index = -index - 2;
+        } else {
+            // Several changes at the same time, the last one wins
+            while (index + 1 < count && times[index + 1] == timeMillis) {
+                index++;
+            }
+        }
+        if (index < 0) {
+            return SensorStatus.Indeterminate;
+        }
+        return SensorStatus.values()[statuses[index] >> shift & 3];
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            output.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt sensor recording.");
+    }
+}
@@ -0,0 +1,110 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Polls a SensorStatusModel on a background thread at a fixed rate and reports only changes.
+// Sensor statuses change a few times per session at most, so polling them on every
+// rendered frame is wasted work on the render path. The listener is called on the
+// given executor, once right after start and then whenever any status differs
+// from the previous sample.
+class SensorStatusSampler {
+    private static final long DEFAULT_INTERVAL_MILLIS = 500;
+
+    private final SensorStatusModel model;
+    private final Executor callbackExecutor;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SensorStatusSampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile SensorStatusListener listener;
+    private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+    private ScheduledFuture<?> sampling;
+
+    // Only touched on the sampling thread
+    private SensorStatus geoLocation;
+    private SensorStatus wifi;
+    private SensorStatus bluetooth;
+
+    private volatile long sampleCount = 0;
+    private volatile long changeCount = 0;
+
+    public SensorStatusSampler(SensorStatusModel model, Executor callbackExecutor) {
+        this.model = model;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public void setListener(SensorStatusListener listener) {
+        this.listener = listener;
+    }
+
+    // Takes effect on the next start.
+    public synchronized void setIntervalMillis(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("The interval must be positive.");
+        }
+        this.intervalMillis = intervalMillis;
+    }
+
+    public synchronized void start() {
+        if (sampling == null && !executor.isShutdown()) {
+            sampling = executor.scheduleWithFixedDelay(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // A stopped sampler cannot be started again.
+    public synchronized void stop() {
+        executor.shutdownNow();
+        sampling = null;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    // Fraction of samples that found a change, how much polling the interval wastes.
+    public double getChangeRate() {
+        long samples = sampleCount;
+        return samples == 0 ? 0 : (double) changeCount / samples;
+    }
+
+    // Takes one sample, runs on the sampling thread once started. Tests call it directly.
+    void sample() {
+        SensorStatus newGeoLocation;
+        SensorStatus newWifi;
+        SensorStatus newBluetooth;
+        try {
+            newGeoLocation = model.getGeoLocationStatus();
+            newWifi = model.getWifiSignalStatus();
+            newBluetooth = model.getBluetoothSignalStatus();
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule, try again on the next sample
+            return;
+        }
+        sampleCount++;
+
+        if (newGeoLocation == geoLocation && newWifi == wifi && newBluetooth == bluetooth) {
+            return;
+        }
+        geoLocation = newGeoLocation;
+        wifi = newWifi;
+        bluetooth = newBluetooth;
+        changeCount++;
+
+        SensorStatusListener currentListener = listener;
+        if (currentListener != null) {
+            callbackExecutor.execute(() -> currentListener.onSensorStatusChanged(newGeoLocation, newWifi, newBluetooth));
+        }
+    }
+}
@@ -9,8 +9,18 @@ import android.util.AttributeSet;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
-public class SensorStatusView extends LinearLayout {
-    private SensorStatusModel model;
+import java.util.ArrayList;
+
+public class SensorStatusView extends LinearLayout implements SensorStatusListener {
+    private SensorStatusSampler sampler;
+    private final ArrayList<SensorStatusListener> statusListeners = new ArrayList<>();
+    private long sampleIntervalMillis = 500;
+    // Resolved once, indexed by SensorStatus ordinal
+    private final int[] statusColors = new int[SensorStatus.values().length];
+
+    private SensorStatus geoLocationStatus;
+    private SensorStatus wifiStatus;
+    private SensorStatus bluetoothStatus;
 
     private TextView geoLocationStatusIcon;
     private TextView wifiStatusIcon;
@@ -31,14 +41,61 @@ public class SensorStatusView extends LinearLayout {
         init(context);
     }
 
+    // Starts sampling the model in the background, or stops when the model is null.
     public void setModel(SensorStatusModel model) {
-        this.model = model;
+        if (sampler != null) {
+            sampler.setListener(null);
+            sampler.stop();
+            sampler = null;
+        }
+        if (model != null) {
+            SensorStatusSampler newSampler = new SensorStatusSampler(model, MainThreadContext::runOnUiThread);
+            newSampler.setIntervalMillis(sampleIntervalMillis);
+            newSampler.setListener((geoLocation, wifi, bluetooth) -> {
+                // Changes already posted by a sampler that was since replaced or stopped are dropped
+                if (sampler == newSampler) {
+                    onSensorStatusChanged(geoLocation, wifi, bluetooth);
+                }
+            });
+            sampler = newSampler;
+            sampler.start();
+        }
     }
 
-    public void update() {
-        geoLocationStatusIcon.setTextColor(getStatusColor(model.getGeoLocationStatus()));
-        wifiStatusIcon.setTextColor(getStatusColor(model.getWifiSignalStatus()));
-        bluetoothStatusIcon.setTextColor(getStatusColor(model.getBluetoothSignalStatus()));
+    // Also notified of every change the view shows.
+    public void addStatusListener(SensorStatusListener statusListener) {
+        statusListeners.add(statusListener);
+    }
+
+    public void removeStatusListener(SensorStatusListener statusListener) {
+        statusListeners.remove(statusListener);
+    }
+
+    public void setSampleIntervalMillis(long intervalMillis) {
+        sampleIntervalMillis = intervalMillis;
+    }
+
+    public SensorStatusSampler getSampler() {
+        return sampler;
+    }
+
+    @Override
+    public void onSensorStatusChanged(SensorStatus geoLocation, SensorStatus wifi, SensorStatus bluetooth) {
+        if (geoLocation != geoLocationStatus) {
+            geoLocationStatus = geoLocation;
+            geoLocationStatusIcon.setTextColor(statusColors[geoLocation.ordinal()]);
+        }
+        if (wifi != wifiStatus) {
+            wifiStatus = wifi;
+            wifiStatusIcon.setTextColor(statusColors[wifi.ordinal()]);
+        }
+        if (bluetooth != bluetoothStatus) {
+            bluetoothStatus = bluetooth;
+            bluetoothStatusIcon.setTextColor(statusColors[bluetooth.ordinal()]);
+        }
+        for (int i = 0; i < statusListeners.size(); i++) {
+            statusListeners.get(i).onSensorStatusChanged(geoLocation, wifi, bluetooth);
+        }
     }
 
     private void init(Context context) {
@@ -47,6 +104,9 @@ public class SensorStatusView extends LinearLayout {
         geoLocationStatusIcon = findViewById(R.id.geolocation_status);
         wifiStatusIcon = findViewById(R.id.wifi_status);
         bluetoothStatusIcon = findViewById(R.id.bluetooth_status);
+        for (SensorStatus status : SensorStatus.values()) {
+            statusColors[status.ordinal()] = getStatusColor(status);
+        }
     }
 
     private int getStatusColor(SensorStatus status) {
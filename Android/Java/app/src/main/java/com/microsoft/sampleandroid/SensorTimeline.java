@@ -0,0 +1,231 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// Time series of sensor status transitions and watcher outcomes, to tell how much each
+// sensor helps coarse relocalization.
+// Events go into a fixed size circular buffer of one timestamp and one byte each, so a
+// long session costs a few tens of kilobytes at most and the oldest events fall off.
+// The statistics group locate attempts by the sensors that were available when the
+// attempt succeeded or gave up, which is the state that decided the outcome.
+class SensorTimeline implements SensorStatusListener {
+    // Bits of an available sensors mask
+    static final int GEO_LOCATION = 1;
+    static final int WIFI = 2;
+    static final int BLUETOOTH = 4;
+    static final int SENSOR_COMBINATIONS = 8;
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    // Event kinds, stored in the top two bits of the event byte
+    private static final int STATUS = 0;
+    private static final int WATCH_STARTED = 1;
+    private static final int ANCHOR_LOCATED = 2;
+    private static final int WATCH_ENDED = 3;
+
+    // Locate attempts that ended with the same sensors available
+    static class LocateStatistics {
+        private final int attemptCount;
+        private final int successCount;
+        private final int locatedAnchorCount;
+        private final List<Long> latencies;
+
+        LocateStatistics(int attemptCount, int successCount, int locatedAnchorCount, List<Long> latencies) {
+            this.attemptCount = attemptCount;
+            this.successCount = successCount;
+            this.locatedAnchorCount = locatedAnchorCount;
+            this.latencies = latencies;
+        }
+
+        public int getAttemptCount() {
+            return attemptCount;
+        }
+
+        public int getSuccessCount() {
+            return successCount;
+        }
+
+        public int getLocatedAnchorCount() {
+            return locatedAnchorCount;
+        }
+
+        public double getSuccessRate() {
+            return attemptCount == 0 ? 0 : (double) successCount / attemptCount;
+        }
+
+        // Time from starting the watcher to the first located anchor, -1 without successes
+        public long getMedianLatencyMillis() {
+            return latencies.isEmpty() ? -1 : latencies.get(latencies.size() / 2);
+        }
+
+        public long getMaxLatencyMillis() {
+            return latencies.isEmpty() ? -1 : latencies.get(latencies.size() - 1);
+        }
+    }
+
+    private final LongSupplier clock;
+    private final long[] times;
+    private final byte[] events;
+    // Guarded by this
+    private int start = 0;
+    private int count = 0;
+    private int lastStatus = -1;
+    // Status in effect before the oldest retained event
+    private int baseStatus = -1;
+
+    public SensorTimeline() {
+        this(DEFAULT_CAPACITY, () -> System.nanoTime() / 1000000);
+    }
+
+    SensorTimeline(int capacity, LongSupplier clockMillis) {
+        this.clock = clockMillis;
+        this.times = new long[capacity];
+        this.events = new byte[capacity];
+    }
+
+    @Override
+    public synchronized void onSensorStatusChanged(SensorStatus geoLocation, SensorStatus wifi, SensorStatus bluetooth) {
+        int status = geoLocation.ordinal() << 4 | wifi.ordinal() << 2 | bluetooth.ordinal();
+        if (status != lastStatus) {
+            lastStatus = status;
+            append(STATUS, status);
+        }
+    }
+
+    public synchronized void recordWatchStarted() {
+        append(WATCH_STARTED, 0);
+    }
+
+    public synchronized void recordAnchorLocated() {
+        append(ANCHOR_LOCATED, 0);
+    }
+
+    // The watcher completed or was stopped.
+    public synchronized void recordWatchEnded() {
+        append(WATCH_ENDED, 0);
+    }
+
+    public synchronized int getEventCount() {
+        return count;
+    }
+
+    // Statistics for the attempts that ended with exactly these sensors available, e.g. GEO_LOCATION | WIFI.
+    public LocateStatistics getStatistics(int availableSensors) {
+        return getAllStatistics()[availableSensors];
+    }
+
+    // Statistics for every combination of available sensors, indexed by mask.
+    public synchronized LocateStatistics[] getAllStatistics() {
+        int[] attempts = new int[SENSOR_COMBINATIONS];
+        int[] successes = new int[SENSOR_COMBINATIONS];
+        int[] located = new int[SENSOR_COMBINATIONS];
+        List<List<Long>> latencies = new ArrayList<>();
+        for (int i = 0; i < SENSOR_COMBINATIONS; i++) {
+            latencies.add(new ArrayList<>());
+        }
+
+        int status = baseStatus;
+        long watchStart = -1;
+        int successMask = -1;
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % times.length;
+            int kind = (events[index] >> 6) & 3;
+            int payload = events[index] & 0x3f;
+            switch (kind) {
+                case STATUS:
+                    status = payload;
+                    break;
+                case WATCH_STARTED:
+                    watchStart = times[index];
+                    successMask = -1;
+                    break;
+                case ANCHOR_LOCATED:
+                    if (watchStart < 0) {
+                        // Its attempt started before the oldest event we still have
+                        break;
+                    }
+                    if (successMask < 0) {
+                        successMask = availableSensors(status);
+                        attempts[successMask]++;
+                        successes[successMask]++;
+                        latencies.get(successMask).add(times[index] - watchStart);
+                    }
+                    located[successMask]++;
+                    break;
+                case WATCH_ENDED:
+                    if (watchStart >= 0 && successMask < 0) {
+                        attempts[availableSensors(status)]++;
+                    }
+                    watchStart = -1;
+                    successMask = -1;
+                    break;
+            }
+        }
+
+        LocateStatistics[] statistics = new LocateStatistics[SENSOR_COMBINATIONS];
+        for (int i = 0; i < SENSOR_COMBINATIONS; i++) {
+            Collections.sort(latencies.get(i));
+            statistics[i] = new LocateStatistics(attempts[i], successes[i], located[i], latencies.get(i));
+        }
+        return statistics;
+    }
+
+    // Describes a mask like "geo+wifi", for logs.
+    static String describe(int availableSensors) {
+        if (availableSensors == 0) {
+            return "none";
+        }
+        StringBuilder description = new StringBuilder();
+        if ((availableSensors & GEO_LOCATION) != 0) {
+            description.append("geo");
+        }
+        if ((availableSensors & WIFI) != 0) {
+            description.append(description.length() > 0 ? "+" : "").append("wifi");
+        }
+        if ((availableSensors & BLUETOOTH) != 0) {
+            description.append(description.length() > 0 ? "+" : "").append("bluetooth");
+        }
+        return description.toString();
+    }
+
+    private static int availableSensors(int status) {
+        if (status < 0) {
+            return 0;
+        }
+        int available = SensorStatus.Available.ordinal();
+        int mask = 0;
+        if ((status >> 4 & 3) == available) {
+            mask |= GEO_LOCATION;
+        }
+        if ((status >> 2 & 3) == available) {
+            mask |= WIFI;
+        }
+        if ((status & 3) == available) {
+            mask |= BLUETOOTH;
+        }
+        return mask;
+    }
+
+    private void append(int kind, int payload) {
+        int index;
+        if (count < times.length) {
+            index = (start + count) % times.length;
+            count++;
+        } else {
+            // Full, overwrite the oldest event
+            index = start;
+            start = (start + 1) % times.length;
+            if ((events[index] >> 6 & 3) == STATUS) {
+                // Later events still need the status the dropped one established
+                baseStatus = events[index] & 0x3f;
+            }
+        }
+        times[index] = clock.getAsLong();
+        events[index] = (byte) (kind << 6 | payload);
+    }
+}
@@ -0,0 +1,14 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+public interface SessionEventListener {
+    void onSessionUpdated(float readyForCreateProgress, float recommendedForCreateProgress);
+
+    // The status is the name of a LocateAnchorStatus
+    void onAnchorLocated(String anchorIdentifier, String status);
+
+    void onLocateAnchorsCompleted(boolean cancelled);
+
+    void onSessionError(String errorMessage);
+}
@@ -0,0 +1,234 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongSupplier;
+
+// Compact binary log of session events with nanosecond timestamps, for replaying a
+// session without a device.
+// The session's event classes wrap native objects and cannot be made up on a JVM, so
+// the log keeps the fields the app reads from them and replays them to a
+// SessionEventListener. Each record is a kind byte, a varint time delta and its fields,
+// strings as a varint byte length and UTF-8, so long error messages fit.
+// Replay is deterministic: the same listener calls in the same order, paced at the
+// recorded speed, faster, or not at all.
+class SessionEventLog implements SessionEventListener {
+    private static final int MAGIC = 0x41534145; // "ASAE"
+    private static final int VERSION = 2;
+
+    private static final int SESSION_UPDATED = 1;
+    private static final int ANCHOR_LOCATED = 2;
+    private static final int LOCATE_COMPLETED = 3;
+    private static final int SESSION_ERROR = 4;
+
+    // Waits between replayed events, replaceable so tests do not sleep
+    interface Pacer {
+        void waitNanos(long nanos) throws InterruptedException;
+    }
+
+    private final LongSupplier clock;
+    // Guarded by this
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream records = new DataOutputStream(bytes);
+    private long lastNanos;
+    private int count = 0;
+
+    public SessionEventLog() {
+        this(System::nanoTime);
+    }
+
+    SessionEventLog(LongSupplier clockNanos) {
+        this.clock = clockNanos;
+        this.lastNanos = clockNanos.getAsLong();
+    }
+
+    @Override
+    public synchronized void onSessionUpdated(float readyForCreateProgress, float recommendedForCreateProgress) {
+        try {
+            startRecord(SESSION_UPDATED);
+            records.writeFloat(readyForCreateProgress);
+            records.writeFloat(recommendedForCreateProgress);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized void onAnchorLocated(String anchorIdentifier, String status) {
+        try {
+            startRecord(ANCHOR_LOCATED);
+            writeString(records, anchorIdentifier == null ? "" : anchorIdentifier);
+            writeString(records, status);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized void onLocateAnchorsCompleted(boolean cancelled) {
+        try {
+            startRecord(LOCATE_COMPLETED);
+            records.writeBoolean(cancelled);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized void onSessionError(String errorMessage) {
+        try {
+            startRecord(SESSION_ERROR);
+            writeString(records, errorMessage == null ? "" : errorMessage);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    // Encoded size of the records
+    public synchronized int getByteCount() {
+        return bytes.size();
+    }
+
+    public synchronized void write(OutputStream stream) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeInt(count);
+        output.writeInt(bytes.size());
+        bytes.writeTo(output);
+        output.flush();
+    }
+
+    public static SessionEventLog read(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a session event log.");
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported session event log version " + version + ".");
+        }
+        int count = input.readInt();
+        int length = input.readInt();
+        if (count < 0 || length < 0) {
+            throw new IOException("Corrupt session event log.");
+        }
+        byte[] records = new byte[length];
+        input.readFully(records);
+
+        SessionEventLog log = new SessionEventLog(() -> 0);
+        log.bytes.write(records, 0, length);
+        log.count = count;
+        return log;
+    }
+
+    // Calls the listener for every event, back to back on this thread.
+    public void replay(SessionEventListener listener) throws IOException {
+        try {
+            replay(listener, 0, nanos -> { });
+        } catch (InterruptedException e) {
+            // Nothing waits
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Calls the listener for every event on this thread, waiting between events as long as
+    // recorded divided by the speed, e.g. 10 for ten times as fast.
+    public void replay(SessionEventListener listener, float speed) throws IOException, InterruptedException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The speed must be positive.");
+        }
+        replay(listener, speed, nanos -> Thread.sleep(nanos / 1000000, (int) (nanos % 1000000)));
+    }
+
+    void replay(SessionEventListener listener, float speed, Pacer pacer) throws IOException, InterruptedException {
+        byte[] snapshot;
+        int snapshotCount;
+        synchronized (this) {
+            snapshot = bytes.toByteArray();
+            snapshotCount = count;
+        }
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(snapshot));
+        for (int i = 0; i < snapshotCount; i++) {
+            int kind = input.readUnsignedByte();
+            long delta = readVarLong(input);
+            if (speed > 0 && delta > 0) {
+                pacer.waitNanos((long) (delta / (double) speed));
+            }
+            switch (kind) {
+                case SESSION_UPDATED:
+                    listener.onSessionUpdated(input.readFloat(), input.readFloat());
+                    break;
+                case ANCHOR_LOCATED:
+                    listener.onAnchorLocated(readString(input), readString(input));
+                    break;
+                case LOCATE_COMPLETED:
+                    listener.onLocateAnchorsCompleted(input.readBoolean());
+                    break;
+                case SESSION_ERROR:
+                    listener.onSessionError(readString(input));
+                    break;
+                default:
+                    throw new IOException("Corrupt session event log.");
+            }
+        }
+    }
+
+    private void startRecord(int kind) throws IOException {
+        long now = clock.getAsLong();
+        records.writeByte(kind);
+        writeVarLong(records, Math.max(0, now - lastNanos));
+        lastNanos = now;
+        count++;
+    }
+
+    // Unlike writeUTF, not limited to 64 KB
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, utf8.length);
+        output.write(utf8);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        long length = readVarLong(input);
+        if (length > input.available()) {
+            throw new IOException("Corrupt session event log.");
+        }
+        byte[] utf8 = new byte[(int) length];
+        input.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            output.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt session event log.");
+    }
+}
@@ -2,6 +2,10 @@
 // Licensed under the MIT license.
 package com.microsoft.sampleandroid;
 
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
@@ -17,6 +21,7 @@ import com.google.ar.core.HitResult;
 import com.google.ar.core.Plane;
 import com.google.ar.sceneform.ArSceneView;
 import com.google.ar.sceneform.Scene;
+import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.Color;
 import com.google.ar.sceneform.rendering.Material;
 import com.google.ar.sceneform.rendering.MaterialFactory;
@@ -28,10 +33,14 @@ import com.microsoft.azure.spatialanchors.CloudSpatialAnchor;
 import com.microsoft.azure.spatialanchors.CloudSpatialException;
 import com.microsoft.azure.spatialanchors.LocateAnchorsCompletedEvent;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class SharedActivity extends AppCompatActivity
+public class SharedActivity extends AppCompatActivity implements AnchorPostListener
 {
     enum DemoStep
     {
@@ -46,7 +55,15 @@ public class SharedActivity extends AppCompatActivity
     private static final String SharingAnchorsServiceUrl = "";
 
     private String anchorId = "";
+    private AnchorSubscription anchorSubscription;
+    // Outlives the activity so queued anchors keep being posted while the process runs
+    private static CompletableFuture<AnchorPostQueue> anchorPostQueue;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private boolean resumed = false;
+    private volatile String postingAnchorId;
     private final ConcurrentHashMap<String, AnchorVisual> anchorVisuals = new ConcurrentHashMap<>();
+    private final AnchorVisibilityPass visibilityPass = new AnchorVisibilityPass();
+    private final FrameScheduler frameScheduler = new FrameScheduler();
     private AzureSpatialAnchorsManager cloudAnchorManager;
     private DemoStep currentStep = DemoStep.DemoStepChoosing;
     private static final DecimalFormat decimalFormat = new DecimalFormat("00");
@@ -146,6 +163,12 @@ public class SharedActivity extends AppCompatActivity
                 // Pass frames to Spatial Anchors for processing.
                 cloudAnchorManager.update(sceneView.getArFrame());
             }
+
+            frameScheduler.postLatest(FrameScheduler.Priority.Normal, "visibility", () -> {
+                Vector3 cameraPosition = scene.getCamera().getWorldPosition();
+                visibilityPass.run(cameraPosition.x, cameraPosition.y, cameraPosition.z, anchorVisuals.values());
+            });
+            frameScheduler.runFrame();
         });
     }
 
@@ -153,6 +176,7 @@ public class SharedActivity extends AppCompatActivity
     protected void onDestroy() {
         super.onDestroy();
         destroySession();
+        AnchorVisual.clearNodePool();
     }
 
     @Override
@@ -189,9 +213,47 @@ public class SharedActivity extends AppCompatActivity
                     .show();
 
             finish();
+            return;
         }
 
         updateStatic();
+
+        // Listen for anchors shared by other devices, resuming where we left off before the pause.
+        if (anchorSubscription == null) {
+            anchorSubscription = new AnchorSubscription(new SharingServiceClient(SharingAnchorsServiceUrl), this::anchorShared);
+            anchorSubscription.setMissedAnchorsListener(() ->
+                    Log.w("ASADemo", "Some shared anchors were dropped by the service before they were delivered"));
+        }
+        anchorSubscription.start(anchorSubscription.getVersion());
+
+        resumed = true;
+        openAnchorPostQueue(this).thenAccept(postQueue -> runOnUiThread(() -> {
+            if (resumed) {
+                postQueue.setListener(this);
+                registerNetworkCallback(postQueue);
+            }
+        }));
+    }
+
+    @Override
+    protected void onPause() {
+        if (anchorSubscription != null) {
+            anchorSubscription.stop();
+        }
+
+        resumed = false;
+        // Still opening means the listener was never set, onResume checks resumed first
+        AnchorPostQueue postQueue = getOpenAnchorPostQueue();
+        if (postQueue != null) {
+            postQueue.setListener(null);
+        }
+        if (networkCallback != null) {
+            ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+            networkCallback = null;
+        }
+
+        super.onPause();
     }
 
     private void anchorLookedUp(String anchorId) {
@@ -233,6 +295,76 @@ public class SharedActivity extends AppCompatActivity
         cloudAnchorManager.startLocating(criteria);
     }
 
+    private void anchorShared(SharedAnchor anchor) {
+        Log.d("ASADemo", "anchor shared: " + anchor);
+        // Offer the newest shared anchor so it does not have to be typed in.
+        runOnUiThread(() -> anchorNumInput.setText(Long.toString(anchor.getAnchorNumber())));
+    }
+
+    @Override
+    public void onAnchorPosted(SharedAnchor postedAnchor) {
+        runOnUiThread(() -> {
+            if (currentStep == DemoStep.DemoStepSaving && postedAnchor.getAnchorId().equals(postingAnchorId)) {
+                postingAnchorId = null;
+                anchorPosted(Long.toString(postedAnchor.getAnchorNumber()));
+            } else {
+                Toast.makeText(this, "Shared queued anchor as number " + postedAnchor.getAnchorNumber(), Toast.LENGTH_LONG)
+                        .show();
+            }
+        });
+    }
+
+    @Override
+    public void onAnchorPostDeferred(String anchorId, int pendingCount) {
+        runOnUiThread(() -> {
+            if (currentStep == DemoStep.DemoStepSaving && anchorId.equals(postingAnchorId)) {
+                // The anchor is saved in the cloud and will be shared once the service is reachable.
+                anchorPosted("pending, " + pendingCount + " anchor(s) waiting to be shared");
+            }
+        });
+    }
+
+    // Static and locked on the class, the queue is shared by every instance of the activity
+    // Opening the queue reads, compacts and syncs its journal, so it happens off the UI thread
+    private static synchronized CompletableFuture<AnchorPostQueue> openAnchorPostQueue(Context context) {
+        if (anchorPostQueue == null || anchorPostQueue.isCompletedExceptionally()) {
+            Context applicationContext = context.getApplicationContext();
+            anchorPostQueue = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new AnchorPostQueue(
+                            new File(applicationContext.getFilesDir(), "anchor_post_queue.log"),
+                            new SharingServiceClient(SharingAnchorsServiceUrl));
+                } catch (IOException e) {
+                    Log.e("ASADemo", "Could not open the anchor post queue", e);
+                    throw new CompletionException(e);
+                }
+            }, AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+        return anchorPostQueue;
+    }
+
+    // The queue if it is open, without waiting
+    private static synchronized AnchorPostQueue getOpenAnchorPostQueue() {
+        if (anchorPostQueue == null || !anchorPostQueue.isDone() || anchorPostQueue.isCompletedExceptionally()) {
+            return null;
+        }
+        return anchorPostQueue.join();
+    }
+
+    private void registerNetworkCallback(AnchorPostQueue postQueue) {
+        if (networkCallback != null) {
+            return;
+        }
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                postQueue.flushNow();
+            }
+        };
+        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
+        connectivityManager.registerDefaultNetworkCallback(networkCallback);
+    }
+
     private void anchorPosted(String anchorNumber) {
         textView.setText("Anchor Number: " + anchorNumber);
         currentStep = DemoStep.DemoStepChoosing;
@@ -351,9 +483,15 @@ public class SharedActivity extends AppCompatActivity
                     anchorVisuals.remove("");
 
                     Log.d("ASADemo", "recording anchor with web service");
-                    AnchorPoster poster = new AnchorPoster(SharingAnchorsServiceUrl, this::anchorPosted);
                     Log.d("ASADemo", "anchorId: " + anchorId);
-                    poster.execute(anchorId);
+                    postingAnchorId = anchorId;
+                    try {
+                        // Already on a background thread
+                        openAnchorPostQueue(this).join().enqueue(anchorId);
+                    } catch (IOException | CompletionException e) {
+                        postingAnchorId = null;
+                        runOnUiThread(() -> createAnchorExceptionCompletion("Failed to queue anchor for sharing: " + e.getMessage()));
+                    }
                 }).exceptionally(thrown -> {
                     thrown.printStackTrace();
                     String exceptionMessage = thrown.toString();
@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+// An anchor GUID together with the number the sharing service assigned to it
+class SharedAnchor {
+    private final long anchorNumber;
+    private final String anchorId;
+
+    public SharedAnchor(long anchorNumber, String anchorId) {
+        this.anchorNumber = anchorNumber;
+        this.anchorId = anchorId;
+    }
+
+    public long getAnchorNumber() {
+        return anchorNumber;
+    }
+
+    public String getAnchorId() {
+        return anchorId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SharedAnchor)) {
+            return false;
+        }
+        SharedAnchor other = (SharedAnchor) o;
+        return anchorNumber == other.anchorNumber && anchorId.equals(other.anchorId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(anchorNumber) + anchorId.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return anchorNumber + " " + anchorId;
+    }
+}
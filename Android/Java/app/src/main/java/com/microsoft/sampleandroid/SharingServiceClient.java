@@ -0,0 +1,269 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Talks to the service detailed in the
+// Azure Spatial Anchors share anchors across devices tutorial.
+// The base address is the anchors endpoint of the service, for example https://<host>/api/anchors
+// Calls are blocking, callers are expected to run them off the main thread.
+//
+// When binary payloads are enabled the client asks for AnchorPayloadCodec bodies through the
+// Accept header and falls back to text whenever the service answers with text, so services
+// without binary support keep working. Binary request bodies are only sent once the service
+// has answered with a binary body.
+class SharingServiceClient {
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int READ_TIMEOUT_MILLIS = 20000;
+    private static final String ANCHOR_VERSION_HEADER = "X-Anchor-Version";
+    private static final String ANCHORS_MISSED_HEADER = "X-Anchors-Missed";
+    private static final String ACCEPT_BINARY = AnchorPayloadCodec.CONTENT_TYPE + ", text/plain;q=0.5, */*;q=0.1";
+
+    // Result of a long-poll on api/anchors/updates
+    static class AnchorUpdates {
+        private final long version;
+        private final List<SharedAnchor> anchors;
+        private final boolean missedAnchors;
+
+        AnchorUpdates(long version, List<SharedAnchor> anchors, boolean missedAnchors) {
+            this.version = version;
+            this.anchors = anchors;
+            this.missedAnchors = missedAnchors;
+        }
+
+        // The anchor number to resume the subscription from, lower than the requested one
+        // when the service numbers anchors from scratch again, e.g. after a restart
+        public long getVersion() {
+            return version;
+        }
+
+        // Anchors posted since the requested version, oldest first
+        public List<SharedAnchor> getAnchors() {
+            return anchors;
+        }
+
+        // True when anchors after the requested version were dropped by the service before
+        // they could be delivered
+        public boolean hasMissedAnchors() {
+            return missedAnchors;
+        }
+    }
+
+    private static class Response {
+        final byte[] body;
+        final boolean binary;
+
+        Response(byte[] body, boolean binary) {
+            this.body = body;
+            this.binary = binary;
+        }
+
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final String baseAddress;
+    private final boolean binaryPayloads;
+    private volatile boolean serverSupportsBinary = false;
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    public SharingServiceClient(String baseAddress) {
+        this(baseAddress, true);
+    }
+
+    public SharingServiceClient(String baseAddress, boolean binaryPayloads) {
+        this.baseAddress = baseAddress;
+        this.binaryPayloads = binaryPayloads;
+    }
+
+    public String getBaseAddress() {
+        return baseAddress;
+    }
+
+    // True once the service answered with a binary body
+    public boolean isServerBinaryCapable() {
+        return serverSupportsBinary;
+    }
+
+    // Request body bytes written, as sent on the wire
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    // Response body bytes read, as received on the wire before decompression
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    // POST api/anchors, returns the anchor number assigned to the anchor GUID
+    public String postAnchor(String anchor) throws IOException {
+        HttpURLConnection connection = openConnection(baseAddress, "POST");
+        try {
+            byte[] body;
+            if (binaryPayloads && serverSupportsBinary) {
+                body = AnchorPayloadCodec.encode(Collections.singletonList(new SharedAnchor(0, anchor)));
+                connection.setRequestProperty("Content-Type", AnchorPayloadCodec.CONTENT_TYPE);
+            } else {
+                body = anchor.getBytes(StandardCharsets.UTF_8);
+                connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+            }
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body);
+            }
+            bytesSent.addAndGet(body.length);
+
+            Response response = readResponse(connection);
+            if (response.binary) {
+                return Long.toString(single(AnchorPayloadCodec.decode(response.body)).getAnchorNumber());
+            }
+            return response.text();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // GET api/anchors/{anchorNumber}, returns the anchor GUID
+    public String getAnchor(String anchorNumber) throws IOException {
+        HttpURLConnection connection = openConnection(baseAddress + "/" + anchorNumber, "GET");
+        try {
+            Response response = readResponse(connection);
+            if (response.binary) {
+                return single(AnchorPayloadCodec.decode(response.body)).getAnchorId();
+            }
+            return response.text();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // GET api/anchors/last, returns the most recently posted anchor GUID or an empty string
+    public String getLastAnchor() throws IOException {
+        return getAnchor("last");
+    }
+
+    // GET api/anchors/updates, blocks until anchors numbered above sinceAnchorNumber are posted
+    // or timeoutSeconds elapse. A null sinceAnchorNumber waits for anchors posted from now on.
+    public AnchorUpdates getAnchorUpdates(Long sinceAnchorNumber, int timeoutSeconds) throws IOException {
+        String address = baseAddress + "/updates?timeoutSeconds=" + timeoutSeconds;
+        if (sinceAnchorNumber != null) {
+            address += "&since=" + sinceAnchorNumber;
+        }
+
+        HttpURLConnection connection = openConnection(address, "GET");
+        try {
+            // Leave room for the server to hold the request for the whole timeout
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS + timeoutSeconds * 1000);
+            Response response = readResponse(connection);
+            String versionHeader = connection.getHeaderField(ANCHOR_VERSION_HEADER);
+            List<SharedAnchor> anchors = response.binary
+                    ? AnchorPayloadCodec.decode(response.body)
+                    : parseAnchorLines(response.text());
+
+            long version = sinceAnchorNumber == null ? -1 : sinceAnchorNumber;
+            if (versionHeader != null) {
+                version = Long.parseLong(versionHeader.trim());
+            }
+            for (SharedAnchor anchor : anchors) {
+                version = Math.max(version, anchor.getAnchorNumber());
+            }
+
+            return new AnchorUpdates(version, anchors, "true".equals(connection.getHeaderField(ANCHORS_MISSED_HEADER)));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static SharedAnchor single(List<SharedAnchor> anchors) throws IOException {
+        if (anchors.size() != 1) {
+            throw new IOException("Expected a single anchor but received " + anchors.size());
+        }
+        return anchors.get(0);
+    }
+
+    private static List<SharedAnchor> parseAnchorLines(String body) throws IOException {
+        if (body.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<SharedAnchor> anchors = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            int separator = line.indexOf(' ');
+            if (separator <= 0) {
+                throw new IOException("Malformed anchor update: " + line);
+            }
+            try {
+                anchors.add(new SharedAnchor(
+                        Long.parseLong(line.substring(0, separator)),
+                        line.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed anchor update: " + line, e);
+            }
+        }
+        return anchors;
+    }
+
+    private HttpURLConnection openConnection(String address, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(address).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        if (binaryPayloads) {
+            connection.setRequestProperty("Accept", ACCEPT_BINARY);
+            // Asking explicitly turns off transparent decompression, gzip is handled in readResponse
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+        }
+        return connection;
+    }
+
+    private Response readResponse(HttpURLConnection connection) throws IOException {
+        int responseCode = connection.getResponseCode();
+        if (responseCode < 200 || responseCode >= 300) {
+            throw new IOException("Sharing service returned HTTP " + responseCode);
+        }
+
+        byte[] body;
+        try (InputStream res = connection.getInputStream()) {
+            body = readAll(res);
+        }
+        bytesReceived.addAndGet(body.length);
+
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            body = AnchorPayloadCodec.gunzip(body);
+        }
+
+        boolean binary = AnchorPayloadCodec.isBinaryContentType(connection.getContentType());
+        if (binary) {
+            serverSupportsBinary = true;
+        }
+        return new Response(body, binary);
+    }
+
+    static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[512];
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,12 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+// Something the visibility pass can cull, implemented by AnchorVisual.
+interface VisibilityTarget {
+    // Writes x, y, z into position, returns false once the target was destroyed
+    boolean getWorldPosition(float[] position);
+
+    // Called on the UI thread with the level picked by the pass
+    void setDetailLevelOnUiThread(AnchorDetailPolicy.DetailLevel level);
+}
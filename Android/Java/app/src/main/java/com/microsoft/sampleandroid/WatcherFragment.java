@@ -6,6 +6,7 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -18,9 +19,18 @@ import com.microsoft.azure.spatialanchors.LocateAnchorStatus;
 import com.microsoft.azure.spatialanchors.LocateAnchorsCompletedEvent;
 import com.microsoft.azure.spatialanchors.NearDeviceCriteria;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class WatcherFragment extends Fragment {
     private AzureSpatialAnchorsManager cloudAnchorManager;
     private AnchorDiscoveryListener listener;
+    private SensorTimeline sensorTimeline;
+    private AdaptiveNearDeviceSearch search;
+    private NearDeviceSearchStore searchStore;
+    private long watchStartNanos;
+    // Written from the session's callback thread
+    private volatile long timeToFirstAnchorMillis = -1;
+    private final AtomicInteger locatedCount = new AtomicInteger();
     private CloudSpatialAnchorWatcher watcher;
     private Button stopWatcherButton;
 
@@ -32,6 +42,16 @@ public class WatcherFragment extends Fragment {
         this.listener = listener;
     }
 
+    public void setSensorTimeline(SensorTimeline sensorTimeline) {
+        this.sensorTimeline = sensorTimeline;
+    }
+
+    // The search to use and adapt, tuned values are saved to the store when the watcher stops.
+    public void setSearch(AdaptiveNearDeviceSearch search, NearDeviceSearchStore searchStore) {
+        this.search = search;
+        this.searchStore = searchStore;
+    }
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -80,17 +100,55 @@ public class WatcherFragment extends Fragment {
 
         AnchorLocateCriteria criteria = new AnchorLocateCriteria();
         NearDeviceCriteria nearDevice = new NearDeviceCriteria();
-        nearDevice.setDistanceInMeters(8.0f);
-        nearDevice.setMaxResultCount(25);
+        if (search != null) {
+            nearDevice.setDistanceInMeters(search.getDistanceInMeters());
+            nearDevice.setMaxResultCount(search.getMaxResultCount());
+        } else {
+            nearDevice.setDistanceInMeters(8.0f);
+            nearDevice.setMaxResultCount(25);
+        }
         criteria.setNearDevice(nearDevice);
 
+        watchStartNanos = System.nanoTime();
+        timeToFirstAnchorMillis = -1;
+        locatedCount.set(0);
         watcher = cloudAnchorManager.startLocating(criteria);
+        if (sensorTimeline != null) {
+            sensorTimeline.recordWatchStarted();
+        }
     }
 
     private void stopWatcher() {
         if (watcher != null) {
             watcher.stop();
             watcher = null;
+            if (search != null) {
+                float searchedMeters = search.getDistanceInMeters();
+                search.recordWatch(locatedCount.get(), timeToFirstAnchorMillis);
+                Log.d("ASADemo", "Watcher found " + locatedCount.get() + " anchors within "
+                        + searchedMeters + " m, first after " + timeToFirstAnchorMillis + " ms ("
+                        + search.getAnchorsPerWatch() + " anchors per watcher, "
+                        + search.getAverageTimeToFirstAnchorMillis() + " ms to the first on average); next search "
+                        + search.getDistanceInMeters() + " m, " + search.getMaxResultCount() + " results");
+                if (searchStore != null) {
+                    searchStore.save(search);
+                }
+            }
+            if (sensorTimeline != null) {
+                sensorTimeline.recordWatchEnded();
+                logLocateStatistics();
+            }
+        }
+    }
+
+    private void logLocateStatistics() {
+        SensorTimeline.LocateStatistics[] statistics = sensorTimeline.getAllStatistics();
+        for (int sensors = 0; sensors < statistics.length; sensors++) {
+            if (statistics[sensors].getAttemptCount() > 0) {
+                Log.d("ASADemo", "Locate with " + SensorTimeline.describe(sensors) + ": "
+                        + statistics[sensors].getSuccessCount() + "/" + statistics[sensors].getAttemptCount()
+                        + " succeeded, median latency " + statistics[sensors].getMedianLatencyMillis() + " ms");
+            }
         }
     }
 
@@ -100,6 +158,12 @@ public class WatcherFragment extends Fragment {
         }
 
         if (anchorLocatedEvent.getStatus() == LocateAnchorStatus.Located) {
+            if (sensorTimeline != null) {
+                sensorTimeline.recordAnchorLocated();
+            }
+            if (locatedCount.getAndIncrement() == 0) {
+                timeToFirstAnchorMillis = (System.nanoTime() - watchStartNanos) / 1000000;
+            }
             MainThreadContext.runOnUiThread(() ->
                 listener.onAnchorDiscovered(anchorLocatedEvent.getAnchor()));
         }
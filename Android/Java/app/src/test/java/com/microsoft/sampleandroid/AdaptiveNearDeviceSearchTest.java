@@ -0,0 +1,51 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how the near device search adapts to sparse and dense areas.
+ */
+public class AdaptiveNearDeviceSearchTest {
+    @Test
+    public void sparseArea_widensTheRadius() {
+        AdaptiveNearDeviceSearch search = new AdaptiveNearDeviceSearch("here");
+        float radius = search.getDistanceInMeters();
+
+        search.recordWatch(0, -1);
+        assertTrue(search.getDistanceInMeters() > radius);
+
+        for (int i = 0; i < 20; i++) {
+            search.recordWatch(1, 5000);
+        }
+        assertEquals(AdaptiveNearDeviceSearch.MAX_DISTANCE_METERS, search.getDistanceInMeters(), 0);
+        assertEquals(AdaptiveNearDeviceSearch.DEFAULT_RESULT_COUNT, search.getMaxResultCount());
+    }
+
+    @Test
+    public void denseArea_shrinksTheRadiusThenRaisesTheBudget() {
+        AdaptiveNearDeviceSearch search = new AdaptiveNearDeviceSearch("here", 8, 10);
+
+        search.recordWatch(10, 300);
+        assertTrue(search.getDistanceInMeters() < 8);
+
+        for (int i = 0; i < 20; i++) {
+            search.recordWatch(search.getMaxResultCount(), 300);
+        }
+        assertEquals(AdaptiveNearDeviceSearch.MIN_DISTANCE_METERS, search.getDistanceInMeters(), 0);
+        assertEquals(AdaptiveNearDeviceSearch.MAX_RESULT_COUNT, search.getMaxResultCount());
+    }
+
+    @Test
+    public void metrics_coverAllWatchers() {
+        AdaptiveNearDeviceSearch search = new AdaptiveNearDeviceSearch("here");
+        search.recordWatch(4, 1000);
+        search.recordWatch(0, -1);
+        search.recordWatch(5, 3000);
+
+        assertEquals(3, search.getWatchCount());
+        assertEquals(3.0, search.getAnchorsPerWatch(), 1e-9);
+        assertEquals(2000, search.getAverageTimeToFirstAnchorMillis());
+    }
+}
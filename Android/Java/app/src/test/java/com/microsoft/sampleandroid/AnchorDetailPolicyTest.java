@@ -0,0 +1,60 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the culling radius and the full detail budget of the visibility pass.
+ */
+public class AnchorDetailPolicyTest {
+    @Test
+    public void classify_hidesFarAnchorsAndLowersDistantOnes() {
+        AnchorDetailPolicy policy = new AnchorDetailPolicy();
+        policy.setCullRadius(10);
+        policy.setFullDetailRadius(3);
+        float[] distancesSquared = { 4, 25, 121, Float.NaN };
+        AnchorDetailPolicy.DetailLevel[] levels = new AnchorDetailPolicy.DetailLevel[4];
+
+        policy.classify(distancesSquared, 4, levels);
+
+        assertEquals(AnchorDetailPolicy.DetailLevel.Full, levels[0]);
+        assertEquals(AnchorDetailPolicy.DetailLevel.Low, levels[1]);
+        assertEquals(AnchorDetailPolicy.DetailLevel.Hidden, levels[2]);
+        assertEquals(AnchorDetailPolicy.DetailLevel.Hidden, levels[3]);
+    }
+
+    @Test
+    public void classify_givesFullDetailToTheNearestWithinBudget() {
+        AnchorDetailPolicy policy = new AnchorDetailPolicy();
+        policy.setCullRadius(100);
+        policy.setFullDetailRadius(100);
+        policy.setFullDetailBudget(25);
+        Random random = new Random(42);
+        int count = 500;
+        float[] distancesSquared = new float[count];
+        for (int i = 0; i < count; i++) {
+            // Plenty of ties, which partitioning has to cope with
+            distancesSquared[i] = random.nextInt(50);
+        }
+        AnchorDetailPolicy.DetailLevel[] levels = new AnchorDetailPolicy.DetailLevel[count];
+
+        policy.classify(distancesSquared, count, levels);
+
+        float farthestFull = -1;
+        float nearestLow = Float.MAX_VALUE;
+        int fullCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (levels[i] == AnchorDetailPolicy.DetailLevel.Full) {
+                fullCount++;
+                farthestFull = Math.max(farthestFull, distancesSquared[i]);
+            } else {
+                nearestLow = Math.min(nearestLow, distancesSquared[i]);
+            }
+        }
+        assertEquals(25, fullCount);
+        assertTrue(farthestFull <= nearestLow);
+    }
+}
@@ -0,0 +1,70 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the cursor loads anchors one page at a time, in order.
+ */
+public class AnchorPageCursorTest {
+    @Test
+    public void pages_loadOnDemandInOrder() {
+        List<String> loaded = new ArrayList<>();
+        AnchorPageCursor<String> cursor = new AnchorPageCursor<>(Arrays.asList("a", "b", "c", "d", "e"), 2,
+                id -> {
+                    loaded.add(id);
+                    return CompletableFuture.completedFuture(id.toUpperCase());
+                });
+
+        assertEquals(5, cursor.getCount());
+        assertTrue(loaded.isEmpty());
+
+        assertEquals(Arrays.asList("A", "B"), cursor.nextPage().join());
+        assertEquals(2, loaded.size());
+        assertEquals(Arrays.asList("C", "D"), cursor.nextPage().join());
+        assertEquals(Arrays.asList("E"), cursor.nextPage().join());
+        assertFalse(cursor.hasNext());
+        assertTrue(cursor.nextPage().join().isEmpty());
+        assertEquals(5, loaded.size());
+    }
+
+    @Test
+    public void page_keepsOrderWhenLoadsCompleteOutOfOrder() {
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+        AnchorPageCursor<String> cursor = new AnchorPageCursor<>(Arrays.asList("a", "b", "c"), 3,
+                id -> {
+                    CompletableFuture<String> load = new CompletableFuture<>();
+                    pending.add(load);
+                    return load;
+                });
+
+        CompletableFuture<List<String>> page = cursor.nextPage();
+        pending.get(2).complete("c");
+        pending.get(0).complete("a");
+        assertFalse(page.isDone());
+        pending.get(1).complete("b");
+
+        assertEquals(Arrays.asList("a", "b", "c"), page.join());
+    }
+
+    @Test
+    public void failedLoad_isNullAndTheRestOfThePageStillLoads() {
+        AnchorPageCursor<String> cursor = new AnchorPageCursor<>(Arrays.asList("a", "b"), 2, id -> {
+            CompletableFuture<String> load = new CompletableFuture<>();
+            if (id.equals("b")) {
+                load.completeExceptionally(new RuntimeException("gone"));
+            } else {
+                load.complete(id);
+            }
+            return load;
+        });
+
+        assertEquals(Arrays.asList("a", null), cursor.nextPage().join());
+    }
+}
@@ -0,0 +1,69 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class AnchorPayloadCodecTest {
+    @Test
+    public void roundTrip_preservesGuidsAndOtherIdentifiers() throws IOException {
+        List<SharedAnchor> anchors = Arrays.asList(
+                new SharedAnchor(0, "61687109-905f-4436-91f8-e602f514c96d"),
+                new SharedAnchor(300, "E1F54E02-1E23-44E0-9C3D-512EB56ADEC9"),
+                new SharedAnchor(Long.MAX_VALUE, "not-a-guid"));
+
+        assertEquals(anchors, AnchorPayloadCodec.decode(AnchorPayloadCodec.encode(anchors)));
+    }
+
+    @Test
+    public void guidWithSmallNumber_takesEighteenBytes() {
+        byte[] payload = AnchorPayloadCodec.encode(Arrays.asList(
+                new SharedAnchor(5, "61687109-905f-4436-91f8-e602f514c96d")));
+
+        // version + count + number + kind + 16 GUID bytes
+        assertEquals(2 + 1 + 1 + 16, payload.length);
+    }
+
+    @Test
+    public void gzip_shrinksLargeBatches() throws IOException {
+        List<SharedAnchor> anchors = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            anchors.add(new SharedAnchor(i, UUID.randomUUID().toString()));
+        }
+
+        byte[] payload = AnchorPayloadCodec.encode(anchors);
+        byte[] compressed = AnchorPayloadCodec.gzip(payload);
+
+        assertTrue(payload.length < 500 * 38);
+        assertArrayEquals(payload, AnchorPayloadCodec.gunzip(compressed));
+    }
+
+    @Test
+    public void binaryContentType_matchesIgnoringCaseInAnyLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertTrue(AnchorPayloadCodec.isBinaryContentType(" " + AnchorPayloadCodec.CONTENT_TYPE.toUpperCase(Locale.ROOT)));
+            assertTrue(AnchorPayloadCodec.isBinaryContentType(AnchorPayloadCodec.CONTENT_TYPE + "; charset=binary"));
+            assertFalse(AnchorPayloadCodec.isBinaryContentType("text/plain"));
+            assertFalse(AnchorPayloadCodec.isBinaryContentType(null));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsTruncatedPayload() throws IOException {
+        byte[] payload = AnchorPayloadCodec.encode(Arrays.asList(
+                new SharedAnchor(1, "61687109-905f-4436-91f8-e602f514c96d")));
+
+        AnchorPayloadCodec.decode(Arrays.copyOf(payload, payload.length - 4));
+    }
+}
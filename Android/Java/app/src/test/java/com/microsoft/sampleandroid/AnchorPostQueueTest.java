@@ -0,0 +1,113 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that queued anchors survive restarts and outages of the sharing service.
+ */
+public class AnchorPostQueueTest {
+    private SharingServiceStub service;
+    private File journal;
+    private AnchorPostQueue queue;
+    private final BlockingQueue<SharedAnchor> posted = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        service = new SharingServiceStub();
+        service.start();
+        journal = File.createTempFile("anchor_post_queue", ".log");
+        journal.delete();
+    }
+
+    @After
+    public void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+        service.stop();
+        journal.delete();
+    }
+
+    @Test
+    public void enqueue_postsAndDeduplicates() throws Exception {
+        service.setErrorRate(1.0);
+        queue = openQueue();
+
+        assertTrue(queue.enqueue("61687109-905f-4436-91f8-e602f514c96d"));
+        assertFalse(queue.enqueue("61687109-905f-4436-91f8-e602f514c96d"));
+        assertEquals(1, queue.getPendingCount());
+
+        service.setErrorRate(0);
+        queue.flushNow();
+
+        assertEquals(new SharedAnchor(0, "61687109-905f-4436-91f8-e602f514c96d"), posted.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(1, service.getAnchorCount());
+    }
+
+    @Test
+    public void pendingAnchors_surviveRestart() throws Exception {
+        service.setErrorRate(1.0);
+        queue = openQueue();
+        queue.enqueue("a");
+        queue.enqueue("b");
+        // Simulate process death, the old queue must no longer report anything
+        queue.setListener(null);
+        queue.shutdown();
+
+        service.setErrorRate(0);
+        queue = openQueue();
+
+        assertEquals("a", posted.poll(5, TimeUnit.SECONDS).getAnchorId());
+        assertEquals("b", posted.poll(5, TimeUnit.SECONDS).getAnchorId());
+    }
+
+    @Test
+    public void tornJournalWrite_isIgnored() throws Exception {
+        try (FileOutputStream output = new FileOutputStream(journal)) {
+            output.write("+a\n-a\n+b\n+c".getBytes(StandardCharsets.UTF_8));
+        }
+        service.setErrorRate(1.0);
+
+        queue = openQueue();
+
+        assertEquals(1, queue.getPendingCount());
+        assertEquals("b", queue.getPendingAnchorIds().get(0));
+    }
+
+    @Test
+    public void retriedPost_keepsAnchorNumber() throws IOException {
+        SharingServiceClient client = new SharingServiceClient(service.getAnchorsAddress());
+
+        assertEquals("0", client.postAnchor("a"));
+        assertEquals("1", client.postAnchor("b"));
+        assertEquals("0", client.postAnchor("a"));
+    }
+
+    private AnchorPostQueue openQueue() throws IOException {
+        AnchorPostQueue postQueue = new AnchorPostQueue(journal, new SharingServiceClient(service.getAnchorsAddress()));
+        postQueue.setListener(new AnchorPostListener() {
+            @Override
+            public void onAnchorPosted(SharedAnchor postedAnchor) {
+                posted.add(postedAnchor);
+            }
+
+            @Override
+            public void onAnchorPostDeferred(String anchorId, int pendingCount) {
+            }
+        });
+        return postQueue;
+    }
+}
@@ -0,0 +1,103 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks typed reads and writes of anchor app properties and their limits.
+ */
+public class AnchorPropertiesCodecTest {
+    private enum Color {
+        Red,
+        Green,
+    }
+
+    private static final AnchorPropertiesCodec.Field<Color> COLOR =
+            AnchorPropertiesCodec.enumField("Color", Color.class, Color.Red);
+    private static final AnchorPropertiesCodec.Field<Integer> LEVEL =
+            AnchorPropertiesCodec.intField("Level", -1);
+    private static final AnchorPropertiesCodec.Field<Boolean> PINNED =
+            AnchorPropertiesCodec.booleanField("Pinned", false);
+    private static final AnchorPropertiesCodec.Field<String> LABEL =
+            AnchorPropertiesCodec.stringField("Label", "");
+
+    @Test
+    public void putAndGet_roundTrips() {
+        Map<String, String> properties = new HashMap<>();
+        AnchorPropertiesCodec.put(properties, COLOR, Color.Green);
+        AnchorPropertiesCodec.put(properties, LEVEL, -42);
+        AnchorPropertiesCodec.put(properties, PINNED, true);
+        AnchorPropertiesCodec.put(properties, LABEL, "lobby");
+
+        assertEquals("Green", properties.get("Color"));
+        assertEquals(Color.Green, AnchorPropertiesCodec.get(properties, COLOR));
+        assertEquals(-42, (int) AnchorPropertiesCodec.get(properties, LEVEL));
+        assertTrue(AnchorPropertiesCodec.get(properties, PINNED));
+        assertEquals("lobby", AnchorPropertiesCodec.get(properties, LABEL));
+        assertEquals(AnchorPropertiesCodec.VERSION, AnchorPropertiesCodec.getVersion(properties));
+    }
+
+    @Test
+    public void malformedOrMissing_givesDefaults() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("Color", "Purple");
+        properties.put("Level", "12x");
+        properties.put("Pinned", "yes");
+
+        assertEquals(Color.Red, AnchorPropertiesCodec.get(properties, COLOR));
+        assertFalse(AnchorPropertiesCodec.has(properties, COLOR));
+        assertEquals(-1, (int) AnchorPropertiesCodec.get(properties, LEVEL));
+        assertFalse(AnchorPropertiesCodec.get(properties, PINNED));
+        assertEquals("", AnchorPropertiesCodec.get(properties, LABEL));
+
+        properties.put("Level", "99999999999");
+        assertEquals(-1, (int) AnchorPropertiesCodec.get(properties, LEVEL));
+        // Written before versioning
+        assertEquals(0, AnchorPropertiesCodec.getVersion(properties));
+    }
+
+    @Test
+    public void put_enforcesSizeLimits() {
+        Map<String, String> properties = new HashMap<>();
+        char[] value = new char[AnchorPropertiesCodec.MAX_VALUE_LENGTH + 1];
+        Arrays.fill(value, 'x');
+        try {
+            AnchorPropertiesCodec.put(properties, LABEL, new String(value));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        String longValue = new String(value, 0, AnchorPropertiesCodec.MAX_VALUE_LENGTH);
+        int fields = 0;
+        try {
+            while (true) {
+                AnchorPropertiesCodec.put(properties, AnchorPropertiesCodec.stringField("Label" + fields, ""), longValue);
+                fields++;
+            }
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(3, fields);
+        assertFalse(properties.containsKey("Label3"));
+        // Rewriting a field only counts its new value
+        AnchorPropertiesCodec.put(properties, AnchorPropertiesCodec.stringField("Label0", ""), longValue);
+    }
+
+    @Test
+    public void getAll_decodesEveryAnchor() {
+        Map<String, String> green = new HashMap<>();
+        AnchorPropertiesCodec.put(green, COLOR, Color.Green);
+        List<Map<String, String>> anchors = Arrays.asList(green, Collections.emptyMap(), green);
+
+        Color[] colors = AnchorPropertiesCodec.getAll(anchors, COLOR, new Color[0]);
+        assertArrayEquals(new Color[]{Color.Green, Color.Red, Color.Green}, colors);
+        Color[] reused = new Color[8];
+        assertSame(reused, AnchorPropertiesCodec.getAll(anchors, COLOR, reused));
+    }
+}
@@ -0,0 +1,103 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares index queries against a linear scan over the same anchors.
+ */
+public class AnchorSpatialIndexTest {
+    private static final int ANCHOR_COUNT = 2000;
+
+    private final float[][] positions = new float[ANCHOR_COUNT][];
+    private final AnchorSpatialIndex<Integer> index = new AnchorSpatialIndex<>();
+
+    private void fill(Random random) {
+        for (int i = 0; i < ANCHOR_COUNT; i++) {
+            positions[i] = new float[] {
+                    random.nextFloat() * 200 - 100, random.nextFloat() * 6 - 3, random.nextFloat() * 200 - 100 };
+            index.update(i, positions[i][0], positions[i][1], positions[i][2]);
+        }
+    }
+
+    @Test
+    public void queryRadius_matchesLinearScan() {
+        Random random = new Random(1);
+        fill(random);
+        for (int query = 0; query < 200; query++) {
+            float[] point = randomPoint(random);
+            float radius = random.nextFloat() * 15;
+            List<Integer> found = new ArrayList<>();
+            index.queryRadius(point[0], point[1], point[2], radius, found);
+
+            HashSet<Integer> expected = new HashSet<>();
+            for (int i = 0; i < ANCHOR_COUNT; i++) {
+                if (distanceSquared(i, point) <= radius * radius) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected, new HashSet<>(found));
+        }
+    }
+
+    @Test
+    public void queryNearest_matchesLinearScan() {
+        Random random = new Random(2);
+        fill(random);
+        for (int query = 0; query < 200; query++) {
+            // Include points far outside the anchors
+            float[] point = randomPoint(random);
+            if (query % 10 == 0) {
+                point[0] += 5000;
+            }
+            int k = 1 + random.nextInt(30);
+            List<Integer> found = new ArrayList<>();
+            index.queryNearest(point[0], point[1], point[2], k, found);
+
+            List<Float> expected = new ArrayList<>();
+            for (int i = 0; i < ANCHOR_COUNT; i++) {
+                expected.add(distanceSquared(i, point));
+            }
+            Collections.sort(expected);
+            assertEquals(k, found.size());
+            for (int i = 0; i < k; i++) {
+                assertEquals(expected.get(i), distanceSquared(found.get(i), point), 0);
+            }
+        }
+    }
+
+    @Test
+    public void movedAndRemovedAnchors_areTracked() {
+        index.update(1, 0, 0, 0, 1);
+        index.update(2, 0.5f, 0, 0, 1);
+        index.update(1, 50, 0, 0, 2);
+
+        List<Integer> found = new ArrayList<>();
+        index.queryRadius(0, 0, 0, 1, found);
+        assertEquals(Collections.singletonList(2), found);
+
+        index.removeOlderThan(2);
+        assertEquals(1, index.size());
+        found.clear();
+        index.queryNearest(0, 0, 0, 5, found);
+        assertEquals(Collections.singletonList(1), found);
+    }
+
+    private static float[] randomPoint(Random random) {
+        return new float[] { random.nextFloat() * 240 - 120, random.nextFloat() * 6 - 3, random.nextFloat() * 240 - 120 };
+    }
+
+    private float distanceSquared(int anchor, float[] point) {
+        float dx = positions[anchor][0] - point[0];
+        float dy = positions[anchor][1] - point[1];
+        float dz = positions[anchor][2] - point[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
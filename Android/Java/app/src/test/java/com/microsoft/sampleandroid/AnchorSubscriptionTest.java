@@ -0,0 +1,109 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks push delivery of shared anchors against the local stand-in for the sharing service.
+ */
+public class AnchorSubscriptionTest {
+    private SharingServiceStub service;
+    private SharingServiceClient client;
+    private AnchorSubscription subscription;
+    private final BlockingQueue<SharedAnchor> received = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        service = new SharingServiceStub();
+        service.start();
+        client = new SharingServiceClient(service.getAnchorsAddress());
+        subscription = new AnchorSubscription(client, received::add);
+    }
+
+    @After
+    public void tearDown() {
+        subscription.stop();
+        service.stop();
+    }
+
+    @Test
+    public void newAnchors_arePushedInOrder() throws Exception {
+        subscription.start();
+        waitForPendingPoll();
+
+        client.postAnchor("61687109-905f-4436-91f8-e602f514c96d");
+        client.postAnchor("e1f54e02-1e23-44e0-9c3d-512eb56adec9");
+
+        assertEquals(new SharedAnchor(0, "61687109-905f-4436-91f8-e602f514c96d"), received.poll(5, TimeUnit.SECONDS));
+        assertEquals(new SharedAnchor(1, "e1f54e02-1e23-44e0-9c3d-512eb56adec9"), received.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void start_resumesFromVersion() throws Exception {
+        client.postAnchor("a");
+        client.postAnchor("b");
+        client.postAnchor("c");
+
+        subscription.start(0L);
+
+        assertEquals(new SharedAnchor(1, "b"), received.poll(5, TimeUnit.SECONDS));
+        assertEquals(new SharedAnchor(2, "c"), received.poll(5, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(2), subscription.getVersion());
+    }
+
+    @Test
+    public void droppedConnections_reconnectWithoutLosingAnchors() throws Exception {
+        service.setErrorRate(1.0);
+        subscription.start(-1L);
+        Thread.sleep(300);
+        assertTrue(subscription.getReconnectCount() > 0);
+
+        service.setErrorRate(0);
+        client.postAnchor("d");
+
+        assertEquals(new SharedAnchor(0, "d"), received.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void versionFromBeforeARestart_followsTheNewNumbering() throws Exception {
+        // The service numbers from 0 again, as the sample's in-memory cache does after a restart
+        subscription.start(41L);
+        waitForPendingPoll();
+
+        client.postAnchor("e");
+
+        assertEquals(new SharedAnchor(0, "e"), received.poll(5, TimeUnit.SECONDS));
+        assertEquals(Long.valueOf(0), subscription.getVersion());
+    }
+
+    @Test
+    public void fallingBehindTheFeed_reportsMissedAnchors() throws Exception {
+        for (int i = 0; i < 1100; i++) {
+            service.addAnchor("anchor-" + i);
+        }
+        CountDownLatch missed = new CountDownLatch(1);
+        subscription.setMissedAnchorsListener(missed::countDown);
+
+        subscription.start(0L);
+
+        assertTrue(missed.await(5, TimeUnit.SECONDS));
+        // Only the retained anchors are delivered, the oldest first
+        assertEquals(new SharedAnchor(76, "anchor-76"), received.poll(5, TimeUnit.SECONDS));
+    }
+
+    private void waitForPendingPoll() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getActiveConnections() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which anchors the visibility pass shows and hides as visuals come and go.
+ */
+public class AnchorVisibilityPassTest {
+    private static class FakeTarget implements VisibilityTarget {
+        final float x;
+        boolean destroyed;
+        // Visuals start out drawn in full detail
+        AnchorDetailPolicy.DetailLevel level = AnchorDetailPolicy.DetailLevel.Full;
+
+        FakeTarget(float x) {
+            this.x = x;
+        }
+
+        @Override
+        public boolean getWorldPosition(float[] position) {
+            if (destroyed) {
+                return false;
+            }
+            position[0] = x;
+            position[1] = 0;
+            position[2] = 0;
+            return true;
+        }
+
+        @Override
+        public void setDetailLevelOnUiThread(AnchorDetailPolicy.DetailLevel level) {
+            if (!destroyed) {
+                this.level = level;
+            }
+        }
+    }
+
+    private static AnchorVisibilityPass newPass() {
+        AnchorVisibilityPass pass = new AnchorVisibilityPass();
+        pass.getPolicy().setCullRadius(10);
+        pass.getPolicy().setFullDetailRadius(3);
+        return pass;
+    }
+
+    @Test
+    public void run_hidesAnchorsThatNeverCameIntoRange() {
+        AnchorVisibilityPass pass = newPass();
+        FakeTarget near = new FakeTarget(2);
+        FakeTarget far = new FakeTarget(50);
+
+        pass.run(0, 0, 0, Arrays.asList(near, far));
+
+        assertEquals(AnchorDetailPolicy.DetailLevel.Full, near.level);
+        assertEquals(AnchorDetailPolicy.DetailLevel.Hidden, far.level);
+        assertEquals(1, pass.getVisibleCount());
+        assertEquals(1, pass.getCulledCount());
+    }
+
+    @Test
+    public void run_hidesAnchorsThatLeftTheRange() {
+        AnchorVisibilityPass pass = newPass();
+        FakeTarget target = new FakeTarget(5);
+        List<FakeTarget> targets = Arrays.asList(target);
+
+        pass.run(0, 0, 0, targets);
+        assertEquals(AnchorDetailPolicy.DetailLevel.Low, target.level);
+
+        pass.run(-40, 0, 0, targets);
+        assertEquals(AnchorDetailPolicy.DetailLevel.Hidden, target.level);
+        assertEquals(1, pass.getCulledCount());
+    }
+
+    @Test
+    public void run_reindexesWhenAVisualIsSwappedForAnother() {
+        AnchorVisibilityPass pass = newPass();
+        List<FakeTarget> targets = new ArrayList<>();
+        FakeTarget removed = new FakeTarget(2);
+        targets.add(removed);
+        pass.run(0, 0, 0, targets);
+
+        // Same count, different visual
+        targets.clear();
+        FakeTarget added = new FakeTarget(50);
+        targets.add(added);
+        pass.run(0, 0, 0, targets);
+
+        assertEquals(AnchorDetailPolicy.DetailLevel.Hidden, added.level);
+        assertEquals(0, pass.getVisibleCount());
+        assertEquals(1, pass.getCulledCount());
+        assertEquals(1, pass.getSpatialIndex().size());
+    }
+
+    @Test
+    public void run_dropsDestroyedVisuals() {
+        AnchorVisibilityPass pass = newPass();
+        FakeTarget kept = new FakeTarget(1);
+        FakeTarget destroyed = new FakeTarget(2);
+        List<FakeTarget> targets = Arrays.asList(kept, destroyed);
+        pass.run(0, 0, 0, targets);
+
+        destroyed.destroyed = true;
+        pass.run(0, 0, 0, targets);
+
+        assertEquals(1, pass.getVisibleCount());
+        assertEquals(0, pass.getCulledCount());
+        assertEquals(1, pass.getSpatialIndex().size());
+    }
+}
@@ -0,0 +1,121 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the dispatcher with a single thread executor standing in for the main Looper.
+ */
+public class BatchingDispatcherTest {
+    @Test
+    public void dispatch_runsEverythingInOrderWithFewMessages() throws Exception {
+        ExecutorService looper = Executors.newSingleThreadExecutor();
+        CountingExecutor messages = new CountingExecutor(looper);
+        BatchingDispatcher dispatcher = new BatchingDispatcher(messages, TimeUnit.SECONDS.toNanos(1), 1000000);
+
+        int producerCount = 4;
+        int perProducer = 20000;
+        List<List<Integer>> seen = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(producerCount * perProducer);
+        Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            List<Integer> values = new ArrayList<>();
+            seen.add(values);
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    int value = i;
+                    // Only the looper thread touches the list
+                    dispatcher.dispatch(() -> {
+                        values.add(value);
+                        done.countDown();
+                    });
+                }
+            });
+            producers[p].start();
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        looper.shutdown();
+        looper.awaitTermination(5, TimeUnit.SECONDS);
+
+        for (List<Integer> values : seen) {
+            assertEquals(perProducer, values.size());
+            for (int i = 0; i < perProducer; i++) {
+                assertEquals(i, values.get(i).intValue());
+            }
+        }
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertEquals(producerCount * perProducer, dispatcher.getDispatchCount());
+        assertTrue(messages.count < producerCount * perProducer);
+        assertEquals(messages.count, dispatcher.getDrainCount());
+    }
+
+    @Test
+    public void drain_yieldsOnceTheBudgetIsUsed() {
+        List<Runnable> pendingMessages = new ArrayList<>();
+        BatchingDispatcher dispatcher = new BatchingDispatcher(pendingMessages::add, TimeUnit.MILLISECONDS.toNanos(5), 2);
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(() -> sleep(10));
+        }
+        assertEquals(1, pendingMessages.size());
+        assertEquals(1, dispatcher.getOverflowCount());
+        assertEquals(3, dispatcher.getMaxQueueDepth());
+
+        pendingMessages.remove(0).run();
+
+        assertEquals(2, dispatcher.getQueueDepth());
+        assertEquals(1, dispatcher.getBudgetExceededCount());
+        assertEquals(1, pendingMessages.size());
+        assertTrue(dispatcher.getLastDrainNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void throwingRunnable_doesNotStrandTheQueue() {
+        List<Runnable> pendingMessages = new ArrayList<>();
+        BatchingDispatcher dispatcher = new BatchingDispatcher(pendingMessages::add, TimeUnit.SECONDS.toNanos(1), 16);
+        dispatcher.dispatch(() -> {
+            throw new IllegalStateException("Boom");
+        });
+        dispatcher.dispatch(() -> { });
+
+        try {
+            pendingMessages.remove(0).run();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        pendingMessages.remove(0).run();
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class CountingExecutor implements Executor {
+        private final ExecutorService target;
+        private volatile int count = 0;
+
+        CountingExecutor(ExecutorService target) {
+            this.target = target;
+        }
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            count++;
+            target.execute(command);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks parsing, membership and per site subsets of the beacon registry.
+ */
+public class BeaconRegistryTest {
+    private static final String GLOBAL = "61687109-905f-4436-91f8-e602f514c96d";
+    private static final String SITE_A = "e1f54e02-1e23-44e0-9c3d-512eb56adec9";
+    private static final String SITE_B = "01234567-8901-2345-6789-012345678903";
+
+    private static final String CONFIG =
+            "# global\n"
+            + GLOBAL + "\n"
+            + "not-a-uuid\n"
+            + "site a 47.6396 -122.1283 150\n"
+            + SITE_A.toUpperCase() + "  # upper case is fine\n"
+            + "\n"
+            + "site b 48.0 -122.0 100\n"
+            + SITE_B + "\n"
+            + GLOBAL + "\n";
+
+    @Test
+    public void parse_groupsUuidsBySite() throws IOException {
+        BeaconRegistry registry = BeaconRegistry.parse(new StringReader(CONFIG));
+
+        assertEquals(3, registry.size());
+        assertEquals(2, registry.getSites().size());
+        assertEquals(1, registry.getRejectedLineCount());
+        assertTrue(registry.contains(SITE_A));
+        assertTrue(registry.contains(UUID.fromString(SITE_B)));
+        assertFalse(registry.contains("00000000-0000-0000-0000-000000000000"));
+        assertFalse(registry.contains("nonsense"));
+
+        assertArrayEquals(new String[]{GLOBAL}, registry.getGlobalUuids());
+        assertEquals(Arrays.asList(GLOBAL, SITE_A), sorted(registry.getUuidsForSite("a")));
+    }
+
+    @Test
+    public void location_selectsNearbySites() throws IOException {
+        BeaconRegistry registry = BeaconRegistry.parse(new StringReader(CONFIG));
+
+        // About 100 m north of site a
+        assertEquals(Arrays.asList(GLOBAL, SITE_A), sorted(registry.getUuidsForLocation(47.6405, -122.1283)));
+        // About 300 m away
+        assertEquals(Arrays.asList(GLOBAL), sorted(registry.getUuidsForLocation(47.6423, -122.1283)));
+        // Site b repeats a global UUID, it is only handed out once
+        assertEquals(Arrays.asList(SITE_B, GLOBAL), sorted(registry.getUuidsForLocation(48.0, -122.0)));
+    }
+
+    @Test
+    public void brokenSite_keepsTheSiteBeforeIt() throws IOException {
+        BeaconRegistry registry = BeaconRegistry.parse(new StringReader(
+                "site a 47.6396 -122.1283 150\n"
+                + SITE_A + "\n"
+                + "site bad x y z\n"
+                + SITE_B + "\n"));
+
+        assertEquals(1, registry.getSites().size());
+        assertEquals("a", registry.getSites().get(0).getName());
+        assertEquals(1, registry.size());
+        assertEquals(1, registry.getRejectedLineCount());
+        assertTrue(registry.contains(SITE_A));
+        // The broken site's UUIDs are neither global nor part of site a
+        assertFalse(registry.contains(SITE_B));
+    }
+
+    @Test
+    public void largeFleet_membership() {
+        String[] uuids = new String[5000];
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = new UUID(i * 0x9E3779B97F4A7C15L, -i).toString();
+        }
+        BeaconRegistry registry = BeaconRegistry.of(uuids);
+
+        assertEquals(uuids.length, registry.size());
+        for (String uuid : uuids) {
+            assertTrue(registry.contains(uuid));
+        }
+        assertFalse(registry.contains(new UUID(1, 1)));
+    }
+
+    private static List<String> sorted(String[] uuids) {
+        String[] copy = uuids.clone();
+        Arrays.sort(copy);
+        return Arrays.asList(copy);
+    }
+}
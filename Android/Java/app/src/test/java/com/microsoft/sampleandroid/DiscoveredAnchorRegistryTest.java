@@ -0,0 +1,61 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks deduplication and eviction of discovered anchors.
+ */
+public class DiscoveredAnchorRegistryTest {
+    @Test
+    public void repeats_updateTheExistingEntry() {
+        DiscoveredAnchorRegistry<StringBuilder> registry = new DiscoveredAnchorRegistry<>(() -> 0);
+        AtomicInteger created = new AtomicInteger();
+
+        assertTrue(registry.discover("a", () -> new StringBuilder("a" + created.incrementAndGet()), value -> value.append("+")));
+        assertFalse(registry.discover("a", () -> new StringBuilder("a" + created.incrementAndGet()), value -> value.append("+")));
+        assertTrue(registry.discover("b", () -> new StringBuilder("b" + created.incrementAndGet()), value -> value.append("+")));
+
+        assertEquals(2, created.get());
+        assertEquals(2, registry.size());
+        assertEquals("a1+", registry.get("a").toString());
+        assertEquals(2, registry.getNewCount());
+        assertEquals(1, registry.getDuplicateCount());
+    }
+
+    @Test
+    public void evictUnseen_removesOnlyStaleAnchors() {
+        AtomicLong clock = new AtomicLong();
+        DiscoveredAnchorRegistry<String> registry = new DiscoveredAnchorRegistry<>(clock::get);
+        registry.setMaxUnseenMillis(1000);
+
+        registry.discover("a", () -> "a", value -> { });
+        registry.discover("b", () -> "b", value -> { });
+        clock.set(600);
+        registry.discover("c", () -> "c", value -> { });
+        // Seeing a again keeps it around
+        registry.discover("a", () -> "a", value -> { });
+        assertEquals(Arrays.asList("b", "c", "a"), new ArrayList<>(registry.values()));
+
+        clock.set(1200);
+        List<String> evicted = new ArrayList<>();
+        assertEquals(1, registry.evictUnseen(evicted::add));
+        assertEquals(Arrays.asList("b"), evicted);
+        assertEquals(Arrays.asList("c", "a"), new ArrayList<>(registry.values()));
+
+        clock.set(5000);
+        assertEquals(2, registry.evictUnseen(evicted::add));
+        assertEquals(0, registry.size());
+        assertEquals(3, registry.getEvictedCount());
+
+        // An evicted anchor counts as new when found again
+        assertTrue(registry.discover("b", () -> "b", value -> { }));
+    }
+}
@@ -0,0 +1,96 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs frames against a fake clock where every task takes one millisecond.
+ */
+public class FrameSchedulerTest {
+    private long now = 0;
+    private final List<String> ran = new ArrayList<>();
+    private final FrameScheduler scheduler = new FrameScheduler(() -> now);
+
+    private Runnable task(String name) {
+        return () -> {
+            ran.add(name);
+            now += 1000000;
+        };
+    }
+
+    @Test
+    public void runFrame_runsByPriorityWithinBudget() {
+        scheduler.setBudgetMillis(2);
+        scheduler.post(FrameScheduler.Priority.Low, "low", task("low"));
+        scheduler.post(FrameScheduler.Priority.Normal, "normal", task("normal"));
+        scheduler.post(FrameScheduler.Priority.High, "high", task("high"));
+
+        scheduler.runFrame();
+        assertEquals(2, ran.size());
+        assertEquals("high", ran.get(0));
+        assertEquals("normal", ran.get(1));
+        assertEquals(1, scheduler.getPendingCount());
+        assertEquals(1, scheduler.getDeferredFrameCount());
+
+        scheduler.runFrame();
+        assertEquals("low", ran.get(2));
+    }
+
+    @Test
+    public void overdueTasks_runDespiteTheBudget() {
+        scheduler.setBudgetMillis(1);
+        scheduler.setMaxDeferredFrames(2);
+        for (int i = 0; i < 4; i++) {
+            scheduler.post(FrameScheduler.Priority.Low, "low", task("low" + i));
+        }
+
+        scheduler.runFrame();
+        scheduler.runFrame();
+        assertEquals(2, ran.size());
+        scheduler.runFrame();
+        assertEquals(4, ran.size());
+    }
+
+    @Test
+    public void postLatest_dropsSupersededUpdates() {
+        scheduler.postLatest(FrameScheduler.Priority.Low, "status", task("status 1"));
+        scheduler.postLatest(FrameScheduler.Priority.Low, "status", task("status 2"));
+
+        scheduler.runFrame();
+
+        assertEquals(1, ran.size());
+        assertEquals("status 2", ran.get(0));
+    }
+
+    @Test
+    public void postLatest_everyFrame_stillBecomesOverdue() {
+        scheduler.setBudgetMillis(1);
+        scheduler.setMaxDeferredFrames(3);
+
+        for (int i = 0; i < 5; i++) {
+            scheduler.post(FrameScheduler.Priority.Normal, "busy", task("busy"));
+            scheduler.postLatest(FrameScheduler.Priority.Low, "status", task("status " + i));
+            scheduler.runFrame();
+        }
+
+        // Frame 3 is three frames after the first post
+        assertTrue(ran.contains("status 3"));
+        assertFalse(ran.contains("status 2"));
+    }
+
+    @Test
+    public void overruns_areAttributedToTheTaskThatCrossedTheBudget() {
+        scheduler.setBudgetMillis(0.5f);
+        scheduler.post(FrameScheduler.Priority.High, "slow", () -> now += 5000000);
+
+        scheduler.runFrame();
+
+        assertEquals(1, scheduler.getOverrunFrameCount());
+        assertEquals(Integer.valueOf(1), scheduler.getOverrunsByTask().get("slow"));
+        assertEquals(5000000, scheduler.getLastFrameNanos());
+    }
+}
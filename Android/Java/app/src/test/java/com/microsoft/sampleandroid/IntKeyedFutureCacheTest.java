@@ -0,0 +1,93 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hammers the cache from many threads, the way setColor is called while anchors are being located.
+ */
+public class IntKeyedFutureCacheTest {
+    @Test
+    public void concurrentRequests_shareOneLoadPerKey() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService loaderThread = Executors.newSingleThreadExecutor();
+        IntKeyedFutureCache<String> cache = new IntKeyedFutureCache<>(16, key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> "color " + key, loaderThread);
+        });
+
+        int threadCount = 16;
+        int colorCount = 8;
+        ExecutorService callers = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            results.add(callers.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10000; i++) {
+                    int color = i % colorCount;
+                    assertEquals("color " + color, cache.get(color).get(5, TimeUnit.SECONDS));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+        loaderThread.shutdown();
+
+        assertEquals(colorCount, loads.get());
+        assertEquals(colorCount, cache.size());
+        assertEquals(threadCount * 10000 - colorCount, cache.getHitCount());
+    }
+
+    @Test
+    public void fullCache_evictsLeastRecentlyUsed() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        IntKeyedFutureCache<Integer> cache = new IntKeyedFutureCache<>(2, key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(key);
+        });
+
+        cache.get(1);
+        cache.get(2);
+        cache.get(1);
+        cache.get(3);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get(1);
+        assertEquals(3, loads.get());
+        cache.get(2);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void failedLoad_isRetried() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        IntKeyedFutureCache<Integer> cache = new IntKeyedFutureCache<>(4, key -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("No material");
+            }
+            return CompletableFuture.completedFuture(key);
+        });
+
+        assertTrue(cache.get(7).isCompletedExceptionally());
+        assertEquals(0, cache.size());
+        assertEquals(Integer.valueOf(7), cache.get(7).get());
+        assertEquals(2, loads.get());
+    }
+}
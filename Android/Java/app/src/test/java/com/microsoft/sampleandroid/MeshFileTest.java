@@ -0,0 +1,68 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trips meshes through the binary mesh file and checks that stale or damaged files are rejected.
+ */
+public class MeshFileTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("model", ".mesh");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void map_returnsTheWrittenMesh() throws IOException {
+        MeshData mesh = triangle();
+        MeshFile.write(mesh, 42, file);
+
+        MeshData mapped = MeshFile.map(file, 42);
+
+        assertEquals(3, mapped.getVertexCount());
+        assertTrue(mapped.hasNormals());
+        assertTrue(mapped.hasTexCoords());
+        for (int i = 0; i < mesh.getVertices().capacity(); i++) {
+            assertEquals(mesh.getVertices().get(i), mapped.getVertices().get(i), 0);
+        }
+        assertEquals(3, mapped.getIndices().capacity());
+        assertEquals(2, mapped.getIndices().get(2));
+    }
+
+    @Test
+    public void map_rejectsStaleAndDamagedFiles() throws IOException {
+        MeshFile.write(triangle(), 42, file);
+        assertNull(MeshFile.map(file, 43));
+
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(output.length() - 4);
+        }
+        assertNull(MeshFile.map(file, 42));
+
+        assertNull(MeshFile.map(new File(file.getPath() + ".missing"), 42));
+    }
+
+    private static MeshData triangle() {
+        float[] vertices = new float[3 * 8];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = i * 0.5f;
+        }
+        return new MeshData(FloatBuffer.wrap(vertices), IntBuffer.wrap(new int[] { 0, 1, 2 }), true, true);
+    }
+}
@@ -0,0 +1,42 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parses small OBJ snippets into mesh buffers.
+ */
+public class ObjMeshParserTest {
+    @Test
+    public void parse_triangulatesFaces() throws IOException {
+        String quad = "v 0 0 0\nv 1 0 0\nv 1 1 0\nv 0 1 0\nf 1 2 3 4\n";
+
+        MeshData mesh = ObjMeshParser.parse(new ByteArrayInputStream(quad.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(4, mesh.getVertexCount());
+        assertEquals(2, mesh.getTriangleCount());
+        assertFalse(mesh.hasNormals());
+        assertFalse(mesh.hasTexCoords());
+        assertEquals(3, mesh.getStride());
+        assertEquals(4 * (12 + 6), mesh.getSizeInBytes());
+    }
+
+    @Test
+    public void parse_keepsNormalsAndTexCoords() throws IOException {
+        String triangle = "v 0 0 0\nv 1 0 0\nv 0 1 0\nvt 0 0\nvt 1 0\nvt 0 1\nvn 0 0 1\nf 1/1/1 2/2/1 3/3/1\n";
+
+        MeshData mesh = ObjMeshParser.parse(new ByteArrayInputStream(triangle.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, mesh.getVertexCount());
+        assertEquals(8, mesh.getStride());
+        // Second vertex: position, normal, then texture coordinate
+        assertEquals(1.0f, mesh.getVertices().get(8), 0);
+        assertEquals(1.0f, mesh.getVertices().get(8 + mesh.getNormalOffset() + 2), 0);
+        assertEquals(1.0f, mesh.getVertices().get(8 + mesh.getTexCoordOffset()), 0);
+    }
+}
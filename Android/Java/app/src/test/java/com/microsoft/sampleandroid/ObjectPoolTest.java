@@ -0,0 +1,52 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks reuse, the cap and the statistics of the pool behind AnchorVisual nodes.
+ */
+public class ObjectPoolTest {
+    @Test
+    public void released_objectsAreReused() {
+        ObjectPool<Object> pool = new ObjectPool<>(4);
+        Object first = pool.acquire(Object::new);
+        assertTrue(pool.release(first));
+
+        assertSame(first, pool.acquire(Object::new));
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void fullPool_dropsReleasedObjects() {
+        ObjectPool<Object> pool = new ObjectPool<>(2);
+        for (int i = 0; i < 3; i++) {
+            pool.release(new Object());
+        }
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(1, pool.getDropCount());
+
+        pool.setMaxSize(1);
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(2, pool.getDropCount());
+    }
+
+    @Test
+    public void anchorChurn_allocatesOnlyThePeak() {
+        ObjectPool<Object> pool = new ObjectPool<>(32);
+        Object[] visible = new Object[25];
+        for (int cycle = 0; cycle < 100; cycle++) {
+            for (int i = 0; i < visible.length; i++) {
+                visible[i] = pool.acquire(Object::new);
+            }
+            for (Object object : visible) {
+                pool.release(object);
+            }
+        }
+        assertEquals(25, pool.getAllocationCount());
+        assertEquals(99 * 25, pool.getHitCount());
+    }
+}
@@ -0,0 +1,90 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.microsoft.sampleandroid.SensorReadiness.Sensor.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks per sensor readiness futures and the time each sensor took.
+ */
+public class SensorReadinessTest {
+    @Test
+    public void complete_recordsLatencyOnce() {
+        AtomicLong clock = new AtomicLong(1000);
+        SensorReadiness readiness = new SensorReadiness(clock::get);
+
+        assertTrue(readiness.complete(GeoLocation, true));
+        clock.set(1800);
+        assertTrue(readiness.complete(Wifi, true));
+        clock.set(3000);
+        assertFalse(readiness.complete(Wifi, false));
+
+        assertEquals(0, readiness.getLatencyMillis(GeoLocation));
+        assertEquals(800, readiness.getLatencyMillis(Wifi));
+        assertEquals(-1, readiness.getLatencyMillis(Bluetooth));
+        assertTrue(readiness.isAvailable(Wifi));
+        assertFalse(readiness.get(Bluetooth).isDone());
+        assertFalse(readiness.all().isDone());
+    }
+
+    @Test
+    public void dependents_seeTheLatency() {
+        AtomicLong clock = new AtomicLong();
+        SensorReadiness readiness = new SensorReadiness(clock::get);
+        AtomicLong seen = new AtomicLong();
+        readiness.get(Bluetooth).thenRun(() -> seen.set(readiness.getLatencyMillis(Bluetooth)));
+        clock.set(400);
+
+        assertTrue(readiness.complete(Bluetooth, true));
+
+        assertEquals(400, seen.get());
+    }
+
+    @Test
+    public void dependents_runOutsideTheLock() throws InterruptedException {
+        SensorReadiness readiness = new SensorReadiness(() -> 0);
+        AtomicLong seen = new AtomicLong();
+        readiness.get(Wifi).thenRun(() -> {
+            Thread reader = new Thread(() -> seen.set(readiness.getLatencyMillis(Wifi) + 1));
+            reader.start();
+            try {
+                reader.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        readiness.complete(Wifi, true);
+
+        assertEquals(1, seen.get());
+    }
+
+    @Test
+    public void completingTheReturnedFuture_doesNotSettleTheSensor() {
+        SensorReadiness readiness = new SensorReadiness(() -> 0);
+
+        readiness.get(Wifi).complete(false);
+
+        assertFalse(readiness.get(Wifi).isDone());
+        assertTrue(readiness.complete(Wifi, true));
+        assertTrue(readiness.get(Wifi).join());
+    }
+
+    @Test
+    public void cancel_givesUpOnPendingSensors() {
+        AtomicLong clock = new AtomicLong();
+        SensorReadiness readiness = new SensorReadiness(clock::get);
+        readiness.complete(Wifi, true);
+        clock.set(250);
+
+        readiness.cancel();
+
+        assertTrue(readiness.all().isDone());
+        assertTrue(readiness.get(Wifi).join());
+        assertFalse(readiness.get(Bluetooth).join());
+        assertEquals(250, readiness.getLatencyMillis(Bluetooth));
+    }
+}
@@ -0,0 +1,84 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.microsoft.sampleandroid.SensorStatus.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks recording sensor statuses, the file round trip and deterministic replay.
+ */
+public class SensorRecordingTest {
+    @Test
+    public void record_keepsOnlyChanges() {
+        AtomicLong clock = new AtomicLong(1000);
+        SensorRecording recording = new SensorRecording(clock::get);
+
+        recording.onSensorStatusChanged(Indeterminate, Blocked, Unavailable);
+        clock.set(1500);
+        recording.onSensorStatusChanged(Indeterminate, Blocked, Unavailable);
+        clock.set(2000);
+        recording.onSensorStatusChanged(Available, Blocked, Available);
+
+        assertEquals(2, recording.size());
+        assertEquals(1000, recording.getDurationMillis());
+        assertEquals(Indeterminate, recording.getGeoLocationStatusAt(999));
+        assertEquals(Unavailable, recording.getBluetoothStatusAt(999));
+        assertEquals(Available, recording.getGeoLocationStatusAt(1000));
+        assertEquals(Blocked, recording.getWifiStatusAt(5000));
+    }
+
+    @Test
+    public void writeAndRead_roundTrips() throws IOException {
+        SensorRecording recording = new SensorRecording(() -> 0);
+        SensorStatus[] values = SensorStatus.values();
+        for (int i = 0; i < 1000; i++) {
+            recording.append(i * 250L, values[i % 4], values[i / 4 % 4], values[i / 16 % 4]);
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        recording.write(output);
+        // Deltas below 128 ms fit one byte, 250 ms takes two
+        assertTrue(output.size() <= 9 + recording.size() * 3);
+
+        SensorRecording read = SensorRecording.read(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(recording.size(), read.size());
+        for (long time = 0; time < 250000; time += 125) {
+            assertEquals(recording.getGeoLocationStatusAt(time), read.getGeoLocationStatusAt(time));
+            assertEquals(recording.getWifiStatusAt(time), read.getWifiStatusAt(time));
+            assertEquals(recording.getBluetoothStatusAt(time), read.getBluetoothStatusAt(time));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws IOException {
+        SensorRecording.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9}));
+    }
+
+    @Test
+    public void replay_followsTheClock() {
+        SensorRecording recording = new SensorRecording(() -> 0);
+        recording.append(0, Unavailable, Unavailable, Unavailable);
+        recording.append(2000, Available, Unavailable, Unavailable);
+        recording.append(4000, Available, Available, Blocked);
+
+        AtomicLong clock = new AtomicLong(50000);
+        ReplaySensorStatusModel model = new ReplaySensorStatusModel(recording, clock::get);
+        model.setSpeed(2);
+
+        assertEquals(Unavailable, model.getGeoLocationStatus());
+        clock.addAndGet(1000);
+        assertEquals(Available, model.getGeoLocationStatus());
+        assertEquals(Unavailable, model.getWifiSignalStatus());
+        assertFalse(model.isFinished());
+        clock.addAndGet(1000);
+        assertEquals(Available, model.getWifiSignalStatus());
+        assertEquals(Blocked, model.getBluetoothSignalStatus());
+        assertTrue(model.isFinished());
+    }
+}
@@ -0,0 +1,79 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the sampler only reports sensor status changes, taking samples by hand.
+ */
+public class SensorStatusSamplerTest {
+    private SensorStatus wifi = SensorStatus.Indeterminate;
+    private final List<SensorStatus> reportedWifi = new ArrayList<>();
+
+    private final SensorStatusModel model = new SensorStatusModel() {
+        @Override
+        public SensorStatus getGeoLocationStatus() {
+            return SensorStatus.Available;
+        }
+
+        @Override
+        public SensorStatus getWifiSignalStatus() {
+            return wifi;
+        }
+
+        @Override
+        public SensorStatus getBluetoothSignalStatus() {
+            return SensorStatus.Blocked;
+        }
+    };
+
+    @Test
+    public void sampler_reportsOnlyChanges() {
+        SensorStatusSampler sampler = new SensorStatusSampler(model, Runnable::run);
+        sampler.setListener((geoLocation, wifiStatus, bluetooth) -> reportedWifi.add(wifiStatus));
+
+        sampler.sample();
+        wifi = SensorStatus.Available;
+        sampler.sample();
+        // Plenty of samples, no news
+        for (int i = 0; i < 18; i++) {
+            sampler.sample();
+        }
+
+        assertEquals(Arrays.asList(SensorStatus.Indeterminate, SensorStatus.Available), reportedWifi);
+        assertEquals(2, sampler.getChangeCount());
+        assertEquals(20, sampler.getSampleCount());
+        assertEquals(0.1, sampler.getChangeRate(), 1e-9);
+    }
+
+    @Test
+    public void failedSamples_areNotCounted() {
+        SensorStatusSampler sampler = new SensorStatusSampler(new SensorStatusModel() {
+            @Override
+            public SensorStatus getGeoLocationStatus() {
+                throw new IllegalStateException("Provider stopped");
+            }
+
+            @Override
+            public SensorStatus getWifiSignalStatus() {
+                return wifi;
+            }
+
+            @Override
+            public SensorStatus getBluetoothSignalStatus() {
+                return wifi;
+            }
+        }, Runnable::run);
+        sampler.setListener((geoLocation, wifiStatus, bluetooth) -> reportedWifi.add(wifiStatus));
+
+        sampler.sample();
+
+        assertTrue(reportedWifi.isEmpty());
+        assertEquals(0, sampler.getSampleCount());
+    }
+}
@@ -0,0 +1,67 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays watcher sessions into the timeline and checks the per-sensor statistics.
+ */
+public class SensorTimelineTest {
+    private long now = 0;
+    private final SensorTimeline timeline = new SensorTimeline(64, () -> now);
+
+    @Test
+    public void statistics_areSplitByAvailableSensors() {
+        timeline.onSensorStatusChanged(SensorStatus.Available, SensorStatus.Unavailable, SensorStatus.Blocked);
+        locate(1000, 3);
+        locate(3000, 1);
+        attemptWithoutResult();
+
+        timeline.onSensorStatusChanged(SensorStatus.Available, SensorStatus.Available, SensorStatus.Available);
+        locate(200, 5);
+
+        SensorTimeline.LocateStatistics geoOnly = timeline.getStatistics(SensorTimeline.GEO_LOCATION);
+        assertEquals(3, geoOnly.getAttemptCount());
+        assertEquals(2, geoOnly.getSuccessCount());
+        assertEquals(4, geoOnly.getLocatedAnchorCount());
+        assertEquals(3000, geoOnly.getMedianLatencyMillis());
+        assertEquals(2.0 / 3, geoOnly.getSuccessRate(), 1e-9);
+
+        SensorTimeline.LocateStatistics all = timeline.getStatistics(
+                SensorTimeline.GEO_LOCATION | SensorTimeline.WIFI | SensorTimeline.BLUETOOTH);
+        assertEquals(1, all.getAttemptCount());
+        assertEquals(200, all.getMaxLatencyMillis());
+        assertEquals("geo+wifi+bluetooth", SensorTimeline.describe(7));
+    }
+
+    @Test
+    public void fullBuffer_keepsTheStatusOfDroppedEvents() {
+        timeline.onSensorStatusChanged(SensorStatus.Unavailable, SensorStatus.Available, SensorStatus.Unavailable);
+        for (int i = 0; i < 40; i++) {
+            locate(100, 1);
+        }
+        assertEquals(64, timeline.getEventCount());
+
+        SensorTimeline.LocateStatistics wifiOnly = timeline.getStatistics(SensorTimeline.WIFI);
+        // The oldest attempts fell off, the rest are still attributed to Wi-Fi
+        assertTrue(wifiOnly.getAttemptCount() >= 20);
+        assertEquals(0, timeline.getStatistics(0).getAttemptCount());
+    }
+
+    private void locate(long latencyMillis, int anchorCount) {
+        timeline.recordWatchStarted();
+        now += latencyMillis;
+        for (int i = 0; i < anchorCount; i++) {
+            timeline.recordAnchorLocated();
+        }
+        timeline.recordWatchEnded();
+        now += 10000;
+    }
+
+    private void attemptWithoutResult() {
+        timeline.recordWatchStarted();
+        now += 30000;
+        timeline.recordWatchEnded();
+    }
+}
@@ -0,0 +1,121 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a recorded session replays the same events with the recorded pacing.
+ */
+public class SessionEventLogTest {
+    private static class Transcript implements SessionEventListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onSessionUpdated(float readyForCreateProgress, float recommendedForCreateProgress) {
+            events.add("updated " + readyForCreateProgress + " " + recommendedForCreateProgress);
+        }
+
+        @Override
+        public void onAnchorLocated(String anchorIdentifier, String status) {
+            events.add("located " + anchorIdentifier + " " + status);
+        }
+
+        @Override
+        public void onLocateAnchorsCompleted(boolean cancelled) {
+            events.add("completed " + cancelled);
+        }
+
+        @Override
+        public void onSessionError(String errorMessage) {
+            events.add("error " + errorMessage);
+        }
+    }
+
+    private static SessionEventLog record(AtomicLong clock) {
+        SessionEventLog log = new SessionEventLog(clock::get);
+        clock.addAndGet(16000000);
+        log.onSessionUpdated(0.25f, 0.5f);
+        clock.addAndGet(16000000);
+        log.onSessionUpdated(1f, 0.75f);
+        clock.addAndGet(2000000000L);
+        log.onAnchorLocated("anchor-1", "Located");
+        log.onAnchorLocated("anchor-2", "NotLocatedAnchorDoesNotExist");
+        clock.addAndGet(500000000);
+        log.onSessionError("network");
+        log.onLocateAnchorsCompleted(false);
+        return log;
+    }
+
+    private static final List<String> EXPECTED = Arrays.asList(
+            "updated 0.25 0.5",
+            "updated 1.0 0.75",
+            "located anchor-1 Located",
+            "located anchor-2 NotLocatedAnchorDoesNotExist",
+            "error network",
+            "completed false");
+
+    @Test
+    public void replay_deliversEventsInOrder() throws IOException {
+        SessionEventLog log = record(new AtomicLong());
+        Transcript transcript = new Transcript();
+        log.replay(transcript);
+
+        assertEquals(6, log.size());
+        assertEquals(EXPECTED, transcript.events);
+    }
+
+    @Test
+    public void writeAndRead_roundTrips() throws IOException {
+        SessionEventLog log = record(new AtomicLong(123456789));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        log.write(output);
+
+        SessionEventLog read = SessionEventLog.read(new ByteArrayInputStream(output.toByteArray()));
+        Transcript transcript = new Transcript();
+        read.replay(transcript);
+
+        assertEquals(EXPECTED, transcript.events);
+        assertEquals(log.getByteCount(), read.getByteCount());
+    }
+
+    @Test
+    public void replay_pacesAtTheRequestedSpeed() throws Exception {
+        SessionEventLog log = record(new AtomicLong());
+        List<Long> waits = new ArrayList<>();
+        log.replay(new Transcript(), 4, waits::add);
+
+        assertEquals(Arrays.asList(4000000L, 4000000L, 500000000L, 125000000L), waits);
+    }
+
+    @Test
+    public void longStrings_roundTrip() throws IOException {
+        StringBuilder message = new StringBuilder();
+        while (message.length() < 100000) {
+            message.append("Stack trace line \u00e9\u4e2d ");
+        }
+        SessionEventLog log = new SessionEventLog(() -> 0);
+        log.onSessionError(message.toString());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        log.write(output);
+
+        SessionEventLog read = SessionEventLog.read(new ByteArrayInputStream(output.toByteArray()));
+        Transcript transcript = new Transcript();
+        read.replay(transcript);
+
+        assertEquals(Arrays.asList("error " + message), transcript.events);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws IOException {
+        SessionEventLog.read(new ByteArrayInputStream(new byte[]{0, 0, 0, 0, 1}));
+    }
+}
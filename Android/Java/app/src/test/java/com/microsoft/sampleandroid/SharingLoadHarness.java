@@ -0,0 +1,228 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+// Simulates many devices sharing anchors at the same time: every device posts an anchor GUID
+// and then resolves the returned anchor number, like SharedActivity does on create and locate.
+// Runs against the local SharingServiceStub by default, or against a real deployment
+// when an anchors address is passed on the command line.
+//
+// Usage: SharingLoadHarness [--devices 10,50,100,500] [--operations 20]
+//                           [--latency 20,80] [--errors 0.01] [--max-connections 256]
+//                           [--address https://<host>/api/anchors]
+class SharingLoadHarness {
+    static class StepResult {
+        int devices;
+        long operations;
+        long errors;
+        long elapsedNanos;
+        long p50Micros;
+        long p99Micros;
+        long maxMicros;
+        int peakConnections = -1;
+        long rejectedConnections = -1;
+
+        double getThroughputPerSecond() {
+            return elapsedNanos == 0 ? 0 : operations * 1e9 / elapsedNanos;
+        }
+
+        double getErrorRate() {
+            return operations == 0 ? 0 : (double) errors / operations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%6d devices | %8.1f ops/s | p50 %7.2f ms | p99 %7.2f ms | max %7.2f ms | errors %5.2f%% | peak connections %s | rejected %s",
+                    devices,
+                    getThroughputPerSecond(),
+                    p50Micros / 1000.0,
+                    p99Micros / 1000.0,
+                    maxMicros / 1000.0,
+                    getErrorRate() * 100,
+                    peakConnections < 0 ? "n/a" : Integer.toString(peakConnections),
+                    rejectedConnections < 0 ? "n/a" : Long.toString(rejectedConnections));
+        }
+    }
+
+    private final String anchorsAddress;
+    private final SharingServiceStub service;
+
+    // service may be null when running against a remote deployment,
+    // connection statistics are then not reported.
+    SharingLoadHarness(String anchorsAddress, SharingServiceStub service) {
+        this.anchorsAddress = anchorsAddress;
+        this.service = service;
+    }
+
+    List<StepResult> ramp(int[] deviceCounts, int operationsPerDevice) throws InterruptedException {
+        List<StepResult> results = new ArrayList<>();
+        for (int devices : deviceCounts) {
+            results.add(runStep(devices, operationsPerDevice));
+        }
+        return results;
+    }
+
+    // Every device performs operationsPerDevice post/resolve round trips,
+    // each request counts as one operation.
+    StepResult runStep(int devices, int operationsPerDevice) throws InterruptedException {
+        if (service != null) {
+            service.resetStatistics();
+        }
+
+        long[][] latencies = new long[devices][];
+        long[] errors = new long[devices];
+        CountDownLatch ready = new CountDownLatch(devices);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[devices];
+
+        for (int d = 0; d < devices; d++) {
+            final int device = d;
+            threads[d] = new Thread(() -> {
+                SharingServiceClient client = new SharingServiceClient(anchorsAddress);
+                long[] samples = new long[operationsPerDevice * 2];
+                int count = 0;
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                for (int i = 0; i < operationsPerDevice; i++) {
+                    long start = System.nanoTime();
+                    String anchorNumber = null;
+                    try {
+                        anchorNumber = client.postAnchor(UUID.randomUUID().toString());
+                    } catch (Exception e) {
+                        errors[device]++;
+                    }
+                    samples[count++] = System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    try {
+                        if (anchorNumber == null) {
+                            client.getLastAnchor();
+                        } else {
+                            client.getAnchor(anchorNumber.trim());
+                        }
+                    } catch (Exception e) {
+                        errors[device]++;
+                    }
+                    samples[count++] = System.nanoTime() - start;
+                }
+                latencies[device] = samples;
+            }, "device-" + d);
+            threads[d].start();
+        }
+
+        ready.await();
+        long stepStart = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        StepResult result = new StepResult();
+        result.devices = devices;
+        result.elapsedNanos = System.nanoTime() - stepStart;
+
+        long[] all = new long[devices * operationsPerDevice * 2];
+        int offset = 0;
+        for (int d = 0; d < devices; d++) {
+            result.errors += errors[d];
+            if (latencies[d] != null) {
+                System.arraycopy(latencies[d], 0, all, offset, latencies[d].length);
+                offset += latencies[d].length;
+            }
+        }
+        all = Arrays.copyOf(all, offset);
+        Arrays.sort(all);
+        result.operations = all.length;
+        result.p50Micros = percentile(all, 0.50) / 1000;
+        result.p99Micros = percentile(all, 0.99) / 1000;
+        result.maxMicros = all.length == 0 ? 0 : all[all.length - 1] / 1000;
+
+        if (service != null) {
+            result.peakConnections = service.getPeakConnections();
+            result.rejectedConnections = service.getRejectedCount();
+        }
+
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] deviceCounts = {10, 50, 100, 250, 500};
+        int operations = 20;
+        long minLatency = 20;
+        long maxLatency = 80;
+        double errorRate = 0;
+        int maxConnections = Integer.MAX_VALUE;
+        String address = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--devices":
+                    deviceCounts = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--operations":
+                    operations = Integer.parseInt(value);
+                    break;
+                case "--latency":
+                    String[] range = value.split(",");
+                    minLatency = Long.parseLong(range[0]);
+                    maxLatency = Long.parseLong(range[range.length - 1]);
+                    break;
+                case "--errors":
+                    errorRate = Double.parseDouble(value);
+                    break;
+                case "--max-connections":
+                    maxConnections = Integer.parseInt(value);
+                    break;
+                case "--address":
+                    address = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        SharingServiceStub service = null;
+        if (address == null) {
+            service = new SharingServiceStub();
+            service.setLatencyMillis(minLatency, maxLatency);
+            service.setErrorRate(errorRate);
+            service.setMaxConnections(maxConnections);
+            service.start();
+            address = service.getAnchorsAddress();
+        }
+
+        try {
+            System.out.println("Sharing load test against " + address + ", " + operations + " round trips per device");
+            SharingLoadHarness harness = new SharingLoadHarness(address, service);
+            for (int devices : deviceCounts) {
+                System.out.println(harness.runStep(devices, operations));
+            }
+        } finally {
+            if (service != null) {
+                service.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.microsoft.sampleandroid;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exercises the sharing client against the local stand-in for the sharing service.
+ */
+public class SharingServiceClientTest {
+    private SharingServiceStub service;
+    private SharingServiceClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        service = new SharingServiceStub();
+        service.start();
+        client = new SharingServiceClient(service.getAnchorsAddress());
+    }
+
+    @After
+    public void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void postThenGet_returnsPostedAnchor() throws IOException {
+        String anchorId = "61687109-905f-4436-91f8-e602f514c96d";
+
+        String anchorNumber = client.postAnchor(anchorId);
+
+        assertEquals("0", anchorNumber);
+        assertEquals(anchorId, client.getAnchor(anchorNumber));
+        assertEquals(anchorId, client.getLastAnchor());
+    }
+
+    @Test
+    public void getLast_isEmptyBeforeAnyPost() throws IOException {
+        assertEquals("", client.getLastAnchor());
+    }
+
+    @Test(expected = IOException.class)
+    public void getUnknownAnchor_fails() throws IOException {
+        client.getAnchor("42");
+    }
+
+    @Test(expected = IOException.class)
+    public void injectedErrors_surfaceAsIOException() throws IOException {
+        service.setErrorRate(1.0);
+        client.postAnchor("e1f54e02-1e23-44e0-9c3d-512eb56adec9");
+    }
+
+    @Test
+    public void latency_isApplied() throws IOException {
+        service.setLatencyMillis(50, 50);
+
+        long start = System.nanoTime();
+        client.getLastAnchor();
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue(elapsedMillis >= 50);
+    }
+
+    @Test
+    public void loadHarness_reportsEveryStep() throws InterruptedException {
+        SharingLoadHarness harness = new SharingLoadHarness(service.getAnchorsAddress(), service);
+
+        List<SharingLoadHarness.StepResult> results = harness.ramp(new int[]{1, 4}, 5);
+
+        assertEquals(2, results.size());
+        assertEquals(4 * 5 * 2, results.get(1).operations);
+        assertEquals(0, results.get(1).errors);
+        assertTrue(results.get(1).peakConnections >= 1);
+        assertEquals(25, service.getAnchorCount());
+    }
+
+    @Test
+    public void concurrentRetries_getOneAnchorNumber() throws Exception {
+        String anchorId = "61687109-905f-4436-91f8-e602f514c96d";
+        service.setLatencyMillis(0, 20);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<String>> posts = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                posts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return client.postAnchor(anchorId);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, executor));
+            }
+
+            HashSet<String> numbers = new HashSet<>();
+            for (CompletableFuture<String> post : posts) {
+                numbers.add(post.get());
+            }
+            assertEquals(Collections.singleton("0"), numbers);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void binaryPayloads_areNegotiatedWithTheService() throws IOException {
+        String anchorId = "61687109-905f-4436-91f8-e602f514c96d";
+        String anchorNumber = client.postAnchor(anchorId);
+
+        assertEquals(anchorId, client.getAnchor(anchorNumber));
+        assertTrue(client.isServerBinaryCapable());
+        assertEquals("1", client.postAnchor("e1f54e02-1e23-44e0-9c3d-512eb56adec9"));
+        assertEquals(2, client.getAnchorUpdates(-1L, 0).getAnchors().size());
+    }
+
+    @Test
+    public void textOnlyService_keepsWorking() throws IOException {
+        service.setBinaryPayloads(false);
+        String anchorId = "61687109-905f-4436-91f8-e602f514c96d";
+
+        String anchorNumber = client.postAnchor(anchorId);
+
+        assertEquals(anchorId, client.getAnchor(anchorNumber));
+        assertFalse(client.isServerBinaryCapable());
+        assertEquals(anchorId, client.getAnchorUpdates(-1L, 0).getAnchors().get(0).getAnchorId());
+    }
+}
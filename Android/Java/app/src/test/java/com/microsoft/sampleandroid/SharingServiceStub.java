@@ -0,0 +1,405 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+package com.microsoft.sampleandroid;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local stand-in for the SharingServiceSample web service, so the sharing client can be
+// exercised on a plain JVM without Azure.
+// Implements the same contracts as the sample's AnchorsController and AppTokenController:
+//   GET  api/anchors/{anchorNumber}  -> anchor key, 404 when unknown
+//   GET  api/anchors/last            -> last anchor key or an empty body
+//   GET  api/anchors/updates?since=  -> long-poll for "<anchorNumber> <anchorKey>" lines
+//   POST api/anchors                 -> anchor number for the key in the body
+//   POST api/anchors/key?anchorKey=  -> anchor number for the key in the query
+//   GET  api/apptoken                -> a fake access token
+// Anchors live in memory like the sample's MemoryAnchorCache.
+// Binary AnchorPayloadCodec bodies are negotiated like the sample does, and can be switched
+// off to stand in for a service that only speaks text.
+class SharingServiceStub implements AutoCloseable {
+    private static final int MAX_UPDATES_TIMEOUT_SECONDS = 60;
+    private static final int FEED_CAPACITY = 1024;
+    private static final int GZIP_MIN_BATCH = 4;
+
+    private final ConcurrentHashMap<Long, String> anchorKeys = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> anchorNumbers = new ConcurrentHashMap<>();
+    private final AtomicLong anchorNumberIndex = new AtomicLong(-1);
+    private final Object feedLock = new Object();
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger peakConnections = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong injectedErrorCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private volatile long minLatencyMillis = 0;
+    private volatile long maxLatencyMillis = 0;
+    private volatile double errorRate = 0;
+    private volatile int maxConnections = Integer.MAX_VALUE;
+    private volatile boolean binaryPayloads = true;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // Starts listening on an ephemeral loopback port.
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/api/anchors", this::handle);
+        server.createContext("/api/apptoken", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    // The address to hand to SharingServiceClient and AnchorGetter.
+    public String getAnchorsAddress() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/api/anchors";
+    }
+
+    // Each request is delayed by a uniformly random time in [minMillis, maxMillis].
+    public void setLatencyMillis(long minMillis, long maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Invalid latency range");
+        }
+        this.minLatencyMillis = minMillis;
+        this.maxLatencyMillis = maxMillis;
+    }
+
+    // Fraction of requests, in [0, 1], answered with HTTP 500 instead of being served.
+    public void setErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("The error rate must be between 0 and 1.");
+        }
+        this.errorRate = errorRate;
+    }
+
+    // Requests arriving while this many are already in flight are answered with HTTP 503.
+    public void setMaxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("At least one connection must be allowed.");
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    public void setBinaryPayloads(boolean binaryPayloads) {
+        this.binaryPayloads = binaryPayloads;
+    }
+
+    public int getAnchorCount() {
+        return anchorKeys.size();
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public int getPeakConnections() {
+        return peakConnections.get();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrorCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public void resetStatistics() {
+        peakConnections.set(activeConnections.get());
+        requestCount.set(0);
+        injectedErrorCount.set(0);
+        rejectedCount.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        int active = activeConnections.incrementAndGet();
+        peakConnections.accumulateAndGet(active, Math::max);
+        try {
+            if (active > maxConnections) {
+                rejectedCount.incrementAndGet();
+                respond(exchange, 503, "");
+                return;
+            }
+
+            simulateLatency();
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrorCount.incrementAndGet();
+                respond(exchange, 500, "");
+                return;
+            }
+
+            route(exchange);
+        } finally {
+            activeConnections.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        URI uri = exchange.getRequestURI();
+        String path = uri.getPath();
+
+        if (path.equals("/api/apptoken") || path.equals("/api/apptoken/")) {
+            if (method.equals("GET")) {
+                respond(exchange, 200, "stub-access-token");
+            } else {
+                respond(exchange, 405, "");
+            }
+            return;
+        }
+
+        String resource = path.substring("/api/anchors".length());
+        if (resource.startsWith("/")) {
+            resource = resource.substring(1);
+        }
+
+        if (method.equals("GET")) {
+            if (resource.equals("updates")) {
+                respondWithUpdates(exchange, uri);
+                return;
+            }
+
+            if (resource.equals("last")) {
+                long last = anchorNumberIndex.get();
+                String anchorKey = last >= 0 ? anchorKeys.get(last) : null;
+                respond(exchange, 200, anchorKey == null ? "" : anchorKey);
+                return;
+            }
+
+            long anchorNumber;
+            try {
+                anchorNumber = Long.parseLong(resource);
+            } catch (NumberFormatException e) {
+                respond(exchange, 400, "");
+                return;
+            }
+
+            String anchorKey = anchorKeys.get(anchorNumber);
+            if (anchorKey == null) {
+                respond(exchange, 404, "");
+            } else if (acceptsBinary(exchange)) {
+                respondWithAnchors(exchange, Collections.singletonList(new SharedAnchor(anchorNumber, anchorKey)));
+            } else {
+                respond(exchange, 200, anchorKey);
+            }
+        } else if (method.equals("POST")) {
+            String anchorKey;
+            if (resource.isEmpty()) {
+                byte[] body = SharingServiceClient.readAll(exchange.getRequestBody());
+                if (binaryPayloads && AnchorPayloadCodec.isBinaryContentType(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+                    List<SharedAnchor> posted = AnchorPayloadCodec.decode(body);
+                    anchorKey = posted.size() == 1 ? posted.get(0).getAnchorId() : null;
+                } else {
+                    anchorKey = new String(body, StandardCharsets.UTF_8);
+                }
+            } else if (resource.equals("key")) {
+                anchorKey = getQueryParameter(uri, "anchorKey");
+            } else {
+                respond(exchange, 404, "");
+                return;
+            }
+
+            if (anchorKey == null || anchorKey.trim().isEmpty()) {
+                respond(exchange, 400, "");
+                return;
+            }
+
+            long anchorNumber = setAnchorKey(anchorKey);
+            if (acceptsBinary(exchange)) {
+                respondWithAnchors(exchange, Collections.singletonList(new SharedAnchor(anchorNumber, anchorKey)));
+            } else {
+                respond(exchange, 200, Long.toString(anchorNumber));
+            }
+        } else {
+            respond(exchange, 405, "");
+        }
+    }
+
+    // Shares an anchor without going through HTTP, for setting up many anchors quickly.
+    public long addAnchor(String anchorKey) {
+        return setAnchorKey(anchorKey);
+    }
+
+    private long setAnchorKey(String anchorKey) {
+        synchronized (feedLock) {
+            // Retried posts get the number the anchor already has, like the sample service
+            Long existing = anchorNumbers.get(anchorKey);
+            if (existing != null) {
+                return existing;
+            }
+
+            long index = anchorNumberIndex.get();
+            long anchorNumber = index == Long.MAX_VALUE ? 0 : index + 1;
+            anchorKeys.put(anchorNumber, anchorKey);
+            anchorNumbers.put(anchorKey, anchorNumber);
+            anchorNumberIndex.set(anchorNumber);
+            feedLock.notifyAll();
+            return anchorNumber;
+        }
+    }
+
+    private void respondWithUpdates(HttpExchange exchange, URI uri) throws IOException {
+        String since = getQueryParameter(uri, "since");
+        String timeoutSeconds = getQueryParameter(uri, "timeoutSeconds");
+        long after;
+        long timeoutMillis;
+        try {
+            after = since == null ? anchorNumberIndex.get() : Long.parseLong(since);
+            timeoutMillis = 1000L * Math.max(0, Math.min(MAX_UPDATES_TIMEOUT_SECONDS,
+                    timeoutSeconds == null ? 30 : Integer.parseInt(timeoutSeconds)));
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, "");
+            return;
+        }
+
+        long latest;
+        synchronized (feedLock) {
+            // A number from before the numbering started over resumes from the latest one, like the sample
+            after = Math.min(after, anchorNumberIndex.get());
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long remaining = timeoutMillis;
+            while ((latest = anchorNumberIndex.get()) <= after && remaining > 0) {
+                try {
+                    feedLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+
+        List<SharedAnchor> anchors = new ArrayList<>();
+        long version = after;
+        long oldestRetained = latest - FEED_CAPACITY + 1;
+        if (latest > after && after + 1 < oldestRetained) {
+            exchange.getResponseHeaders().set("X-Anchors-Missed", "true");
+        }
+        for (long anchorNumber = Math.max(after + 1, oldestRetained); anchorNumber <= latest; anchorNumber++) {
+            String anchorKey = anchorKeys.get(anchorNumber);
+            if (anchorKey != null) {
+                anchors.add(new SharedAnchor(anchorNumber, anchorKey));
+                version = anchorNumber;
+            }
+        }
+
+        exchange.getResponseHeaders().set("X-Anchor-Version", Long.toString(version));
+        if (acceptsBinary(exchange)) {
+            respondWithAnchors(exchange, anchors);
+            return;
+        }
+
+        StringBuilder body = new StringBuilder();
+        for (SharedAnchor anchor : anchors) {
+            body.append(anchor.getAnchorNumber()).append(' ').append(anchor.getAnchorId()).append('\n');
+        }
+        respond(exchange, 200, body.toString());
+    }
+
+    private void simulateLatency() {
+        long min = minLatencyMillis;
+        long max = maxLatencyMillis;
+        if (max <= 0) {
+            return;
+        }
+
+        long delay = min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String getQueryParameter(URI uri, String name) throws IOException {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && pair.substring(0, separator).equals(name)) {
+                return URLDecoder.decode(pair.substring(separator + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    private boolean acceptsBinary(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return binaryPayloads && accept != null && accept.contains(AnchorPayloadCodec.CONTENT_TYPE);
+    }
+
+    private static void respondWithAnchors(HttpExchange exchange, List<SharedAnchor> anchors) throws IOException {
+        byte[] bytes = AnchorPayloadCodec.encode(anchors);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (anchors.size() >= GZIP_MIN_BATCH && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            bytes = AnchorPayloadCodec.gzip(bytes);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", AnchorPayloadCodec.CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 // Copyright (c) Microsoft Corporation. All rights reserved.
 // Licensed under the MIT license.
 using Microsoft.AspNetCore.Mvc;
+using Microsoft.Net.Http.Headers;
 using SharingService.Data;
+using System;
 using System.Collections.Generic;
 using System.IO;
 using System.Text;
@@ -13,15 +15,34 @@ namespace SharingService.Controllers
     [ApiController]
     public class AnchorsController : ControllerBase
     {
+        /// <summary>
+        /// The header carrying the anchor number subscribers resume from.
+        /// </summary>
+        private const string AnchorVersionHeader = "X-Anchor-Version";
+
+        /// <summary>
+        /// The header set when anchors the subscriber had not seen are no longer retained.
+        /// </summary>
+        private const string AnchorsMissedHeader = "X-Anchors-Missed";
+
+        /// <summary>
+        /// The longest time a subscription request is held open.
+        /// </summary>
+        private const int maxUpdatesTimeoutSeconds = 60;
+
         private readonly IAnchorKeyCache anchorKeyCache;
 
+        private readonly AnchorFeed anchorFeed;
+
         /// <summary>
         /// Initializes a new instance of the <see cref="AnchorsController"/> class.
         /// </summary>
         /// <param name="anchorKeyCache">The anchor key cache.</param>
-        public AnchorsController(IAnchorKeyCache anchorKeyCache)
+        /// <param name="anchorFeed">The feed notifying subscribers of new anchors.</param>
+        public AnchorsController(IAnchorKeyCache anchorKeyCache, AnchorFeed anchorFeed)
         {
             this.anchorKeyCache = anchorKeyCache;
+            this.anchorFeed = anchorFeed;
         }
 
         // GET api/anchors/5
@@ -31,7 +52,13 @@ namespace SharingService.Controllers
             // Get the key if present
             try
             {
-                return await this.anchorKeyCache.GetAnchorKeyAsync(anchorNumber);
+                string anchorKey = await this.anchorKeyCache.GetAnchorKeyAsync(anchorNumber);
+                if (this.AcceptsBinary())
+                {
+                    return this.Binary(new[] { new AnchorFeedEntry(anchorNumber, anchorKey) });
+                }
+
+                return anchorKey;
             }
             catch(KeyNotFoundException)
             {
@@ -54,14 +81,73 @@ namespace SharingService.Controllers
             return anchorKey;
         }
 
+        // GET api/anchors/updates?since=5&timeoutSeconds=30
+        // Long-poll subscription: answers as soon as anchors numbered above "since" are posted,
+        // one "<anchorNumber> <anchorKey>" line per anchor, or with an empty body once the timeout elapses.
+        // Without "since" only anchors posted after the request arrives are returned.
+        // The X-Anchor-Version header carries the anchor number to resume from. It is lower than "since"
+        // when the numbering started over, e.g. after a restart, and subscribers resume from it.
+        // X-Anchors-Missed is set when anchors after "since" were dropped from the feed before they were asked for.
+        [HttpGet("updates")]
+        public async Task<ActionResult> GetUpdatesAsync(long? since, int timeoutSeconds = 30)
+        {
+            long afterAnchorNumber = since ?? this.anchorFeed.LatestAnchorNumber;
+            TimeSpan timeout = TimeSpan.FromSeconds(Math.Clamp(timeoutSeconds, 0, maxUpdatesTimeoutSeconds));
+
+            AnchorFeedUpdate update = await this.anchorFeed.WaitForAnchorsAsync(afterAnchorNumber, timeout, this.HttpContext.RequestAborted);
+            IReadOnlyList<AnchorFeedEntry> anchors = update.Anchors;
+
+            this.Response.Headers[AnchorVersionHeader] = update.Version.ToString();
+            if (update.MissedAnchors)
+            {
+                this.Response.Headers[AnchorsMissedHeader] = "true";
+            }
+
+            if (this.AcceptsBinary())
+            {
+                return this.Binary(anchors);
+            }
+
+            StringBuilder body = new StringBuilder();
+            foreach (AnchorFeedEntry anchor in anchors)
+            {
+                body.Append(anchor.AnchorNumber).Append(' ').Append(anchor.AnchorKey).Append('\n');
+            }
+
+            return this.Content(body.ToString(), "text/plain", Encoding.UTF8);
+        }
+
         // POST api/anchors
+        // The body is the anchor key as text, or a binary anchor payload holding a single anchor.
         [HttpPost]
         public async Task<ActionResult<long>> PostAsync()
         {
             string anchorKey;
-            using (StreamReader reader = new StreamReader(this.Request.Body, Encoding.UTF8))
+            if (IsBinary(this.Request.ContentType))
+            {
+                byte[] payload;
+                using (MemoryStream buffer = new MemoryStream())
+                {
+                    await this.Request.Body.CopyToAsync(buffer);
+                    payload = buffer.ToArray();
+                }
+
+                try
+                {
+                    IReadOnlyList<AnchorFeedEntry> posted = AnchorPayloadCodec.Decode(payload);
+                    anchorKey = posted.Count == 1 ? posted[0].AnchorKey : null;
+                }
+                catch (InvalidDataException)
+                {
+                    return this.BadRequest();
+                }
+            }
+            else
             {
-                anchorKey = await reader.ReadToEndAsync();
+                using (StreamReader reader = new StreamReader(this.Request.Body, Encoding.UTF8))
+                {
+                    anchorKey = await reader.ReadToEndAsync();
+                }
             }
 
             if (string.IsNullOrWhiteSpace(anchorKey))
@@ -70,7 +156,13 @@ namespace SharingService.Controllers
             }
 
             // Set the key and return the anchor number
-            return await this.anchorKeyCache.SetAnchorKeyAsync(anchorKey);
+            long anchorNumber = await this.SetAnchorKeyAsync(anchorKey);
+            if (this.AcceptsBinary())
+            {
+                return this.Binary(new[] { new AnchorFeedEntry(anchorNumber, anchorKey) });
+            }
+
+            return anchorNumber;
         }
 
         // POST api/anchors/key
@@ -83,7 +175,36 @@ namespace SharingService.Controllers
             }
 
             // Set the key and return the anchor number
-            return await this.anchorKeyCache.SetAnchorKeyAsync(anchorKey);
+            return await this.SetAnchorKeyAsync(anchorKey);
+        }
+
+        private static bool IsBinary(string contentType)
+        {
+            return contentType != null && contentType.StartsWith(AnchorPayloadCodec.ContentType, StringComparison.OrdinalIgnoreCase);
+        }
+
+        private bool AcceptsBinary()
+        {
+            return this.Request.Headers[HeaderNames.Accept].ToString().Contains(AnchorPayloadCodec.ContentType, StringComparison.OrdinalIgnoreCase);
+        }
+
+        private ActionResult Binary(IReadOnlyList<AnchorFeedEntry> anchors)
+        {
+            byte[] payload = AnchorPayloadCodec.Encode(anchors);
+            if (anchors.Count >= AnchorPayloadCodec.GzipMinBatch
+                && this.Request.Headers[HeaderNames.AcceptEncoding].ToString().Contains("gzip", StringComparison.OrdinalIgnoreCase))
+            {
+                payload = AnchorPayloadCodec.Gzip(payload);
+                this.Response.Headers[HeaderNames.ContentEncoding] = "gzip";
+            }
+
+            return this.File(payload, AnchorPayloadCodec.ContentType);
+        }
+
+        private Task<long> SetAnchorKeyAsync(string anchorKey)
+        {
+            // Devices retry posts after losing connectivity, hand back the number the anchor already has.
+            return this.anchorFeed.PublishOnceAsync(anchorKey, this.anchorKeyCache.SetAnchorKeyAsync);
         }
     }
 }
@@ -0,0 +1,253 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+using System;
+using System.Collections.Generic;
+using System.Threading;
+using System.Threading.Tasks;
+
+namespace SharingService.Data
+{
+    /// <summary>
+    /// An anchor number and anchor key pair published through the <see cref="AnchorFeed"/>.
+    /// </summary>
+    public class AnchorFeedEntry
+    {
+        public AnchorFeedEntry(long anchorNumber, string anchorKey)
+        {
+            this.AnchorNumber = anchorNumber;
+            this.AnchorKey = anchorKey;
+        }
+
+        public long AnchorNumber { get; }
+
+        public string AnchorKey { get; }
+    }
+
+    /// <summary>
+    /// The answer to a subscriber waiting on the <see cref="AnchorFeed"/>.
+    /// </summary>
+    public class AnchorFeedUpdate
+    {
+        public AnchorFeedUpdate(long version, IReadOnlyList<AnchorFeedEntry> anchors, bool missedAnchors)
+        {
+            this.Version = version;
+            this.Anchors = anchors;
+            this.MissedAnchors = missedAnchors;
+        }
+
+        /// <summary>
+        /// Gets the anchor number the subscriber resumes from.
+        /// </summary>
+        /// <remarks>
+        /// Lower than the number the subscriber asked for when the numbering started over, e.g. after a restart.
+        /// </remarks>
+        public long Version { get; }
+
+        /// <summary>
+        /// Gets the anchors newer than the subscriber's number, oldest first.
+        /// </summary>
+        public IReadOnlyList<AnchorFeedEntry> Anchors { get; }
+
+        /// <summary>
+        /// Gets a value indicating whether anchors the subscriber had not seen were dropped from the feed before it asked.
+        /// </summary>
+        public bool MissedAnchors { get; }
+    }
+
+    /// <summary>
+    /// Keeps the most recently posted anchors in memory and wakes up long-poll subscribers when new ones arrive.
+    /// </summary>
+    /// <remarks>
+    /// The anchor number doubles as the feed version, subscribers resume from the last number they have seen.
+    /// The feed is local to the service instance, a scaled out deployment needs a shared backplane instead.
+    /// </remarks>
+    public class AnchorFeed
+    {
+        /// <summary>
+        /// The number of recent anchors retained for subscribers that reconnect.
+        /// </summary>
+        private const int capacity = 1024;
+
+        private readonly object syncRoot = new object();
+
+        private readonly Queue<AnchorFeedEntry> recentAnchors = new Queue<AnchorFeedEntry>();
+
+        private readonly Dictionary<string, long> recentAnchorNumbers = new Dictionary<string, long>();
+
+        private readonly Dictionary<string, Task<long>> pendingAnchorNumbers = new Dictionary<string, Task<long>>();
+
+        private TaskCompletionSource<bool> anchorPublished = NewSignal();
+
+        private long latestAnchorNumber = -1;
+
+        /// <summary>
+        /// The feed holds every anchor numbered above this, older ones were published before the service started or evicted.
+        /// </summary>
+        private long? retainedAfterAnchorNumber;
+
+        /// <summary>
+        /// Gets the number of the most recently published anchor, or -1 if none was published.
+        /// </summary>
+        public long LatestAnchorNumber
+        {
+            get
+            {
+                lock (this.syncRoot)
+                {
+                    return this.latestAnchorNumber;
+                }
+            }
+        }
+
+        /// <summary>
+        /// Publishes a newly posted anchor to the subscribers.
+        /// </summary>
+        /// <param name="anchorNumber">The anchor number.</param>
+        /// <param name="anchorKey">The anchor key.</param>
+        public void Publish(long anchorNumber, string anchorKey)
+        {
+            TaskCompletionSource<bool> signal;
+            lock (this.syncRoot)
+            {
+                if (this.retainedAfterAnchorNumber == null)
+                {
+                    this.retainedAfterAnchorNumber = anchorNumber - 1;
+                }
+
+                this.recentAnchors.Enqueue(new AnchorFeedEntry(anchorNumber, anchorKey));
+                this.recentAnchorNumbers[anchorKey] = anchorNumber;
+                while (this.recentAnchors.Count > capacity)
+                {
+                    AnchorFeedEntry evicted = this.recentAnchors.Dequeue();
+                    this.retainedAfterAnchorNumber = evicted.AnchorNumber;
+                    if (this.recentAnchorNumbers.TryGetValue(evicted.AnchorKey, out long number) && number == evicted.AnchorNumber)
+                    {
+                        this.recentAnchorNumbers.Remove(evicted.AnchorKey);
+                    }
+                }
+
+                this.latestAnchorNumber = anchorNumber;
+                signal = this.anchorPublished;
+                this.anchorPublished = NewSignal();
+            }
+
+            signal.TrySetResult(true);
+        }
+
+        /// <summary>
+        /// Stores and publishes an anchor key once, so clients retrying a post get the same number back.
+        /// </summary>
+        /// <remarks>
+        /// The lookup and the claim happen under the feed lock, so concurrent retries of the same key share one store.
+        /// </remarks>
+        /// <param name="anchorKey">The anchor key.</param>
+        /// <param name="storeAnchorKey">Stores the key and returns its new anchor number.</param>
+        /// <returns>The anchor number, the existing one if the key was published recently.</returns>
+        public Task<long> PublishOnceAsync(string anchorKey, Func<string, Task<long>> storeAnchorKey)
+        {
+            TaskCompletionSource<long> posting;
+            lock (this.syncRoot)
+            {
+                if (this.recentAnchorNumbers.TryGetValue(anchorKey, out long anchorNumber))
+                {
+                    return Task.FromResult(anchorNumber);
+                }
+
+                if (this.pendingAnchorNumbers.TryGetValue(anchorKey, out Task<long> pending))
+                {
+                    return pending;
+                }
+
+                posting = new TaskCompletionSource<long>(TaskCreationOptions.RunContinuationsAsynchronously);
+                this.pendingAnchorNumbers[anchorKey] = posting.Task;
+            }
+
+            return this.StoreAndPublishAsync(anchorKey, storeAnchorKey, posting);
+        }
+
+        /// <summary>
+        /// Waits until anchors newer than <paramref name="afterAnchorNumber"/> are available, or the timeout elapses.
+        /// </summary>
+        /// <remarks>
+        /// A number above the latest one was handed out before the numbering started over, e.g. by the
+        /// <see cref="MemoryAnchorCache"/> of a service that restarted. The subscriber then resumes from the latest number
+        /// instead of waiting for the new numbers to catch up with its old one.
+        /// </remarks>
+        /// <param name="afterAnchorNumber">The last anchor number seen by the subscriber.</param>
+        /// <param name="timeout">The maximum time to wait.</param>
+        /// <param name="cancellationToken">The cancellation token.</param>
+        /// <returns>The retained anchors newer than <paramref name="afterAnchorNumber"/>, empty on timeout, and the version to resume from.</returns>
+        public async Task<AnchorFeedUpdate> WaitForAnchorsAsync(long afterAnchorNumber, TimeSpan timeout, CancellationToken cancellationToken)
+        {
+            DateTime deadline = DateTime.UtcNow + timeout;
+
+            lock (this.syncRoot)
+            {
+                afterAnchorNumber = Math.Min(afterAnchorNumber, this.latestAnchorNumber);
+            }
+
+            while (true)
+            {
+                Task published;
+                lock (this.syncRoot)
+                {
+                    bool missedAnchors = afterAnchorNumber < this.retainedAfterAnchorNumber;
+                    long version = afterAnchorNumber;
+                    List<AnchorFeedEntry> newer = new List<AnchorFeedEntry>();
+                    foreach (AnchorFeedEntry entry in this.recentAnchors)
+                    {
+                        if (entry.AnchorNumber > afterAnchorNumber)
+                        {
+                            newer.Add(entry);
+                            version = Math.Max(version, entry.AnchorNumber);
+                        }
+                    }
+
+                    if (newer.Count > 0)
+                    {
+                        return new AnchorFeedUpdate(version, newer, missedAnchors);
+                    }
+
+                    published = this.anchorPublished.Task;
+                }
+
+                TimeSpan remaining = deadline - DateTime.UtcNow;
+                if (remaining <= TimeSpan.Zero)
+                {
+                    return new AnchorFeedUpdate(afterAnchorNumber, Array.Empty<AnchorFeedEntry>(), false);
+                }
+
+                await Task.WhenAny(published, Task.Delay(remaining, cancellationToken));
+                cancellationToken.ThrowIfCancellationRequested();
+            }
+        }
+
+        private async Task<long> StoreAndPublishAsync(string anchorKey, Func<string, Task<long>> storeAnchorKey, TaskCompletionSource<long> posting)
+        {
+            try
+            {
+                long anchorNumber = await storeAnchorKey(anchorKey);
+                this.Publish(anchorNumber, anchorKey);
+                posting.SetResult(anchorNumber);
+                return anchorNumber;
+            }
+            catch (Exception e)
+            {
+                posting.SetException(e);
+                throw;
+            }
+            finally
+            {
+                lock (this.syncRoot)
+                {
+                    this.pendingAnchorNumbers.Remove(anchorKey);
+                }
+            }
+        }
+
+        private static TaskCompletionSource<bool> NewSignal()
+        {
+            return new TaskCompletionSource<bool>(TaskCreationOptions.RunContinuationsAsynchronously);
+        }
+    }
+}
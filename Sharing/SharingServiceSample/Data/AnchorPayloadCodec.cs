@@ -0,0 +1,224 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+using System;
+using System.Collections.Generic;
+using System.IO;
+using System.IO.Compression;
+using System.Text;
+
+namespace SharingService.Data
+{
+    /// <summary>
+    /// Compact binary encoding of anchor numbers and anchor keys, negotiated through the Accept and Content-Type headers.
+    /// </summary>
+    /// <remarks>
+    /// Layout: a format version byte (1), a varint anchor count, then for each anchor a varint anchor number
+    /// followed by either 0 and the 16 GUID bytes in canonical (big-endian) order, or 1, a varint length and the UTF-8 key.
+    /// Varints are unsigned LEB128. The Android sample decodes the same layout.
+    /// </remarks>
+    public static class AnchorPayloadCodec
+    {
+        /// <summary>
+        /// The media type of binary anchor payloads.
+        /// </summary>
+        public const string ContentType = "application/vnd.microsoft.spatialanchors.anchors+binary";
+
+        /// <summary>
+        /// Batches with at least this many anchors are gzip-compressed for clients accepting it.
+        /// </summary>
+        public const int GzipMinBatch = 4;
+
+        private const byte formatVersion = 1;
+        private const byte kindGuid = 0;
+        private const byte kindString = 1;
+
+        /// <summary>
+        /// Encodes the anchors.
+        /// </summary>
+        /// <param name="anchors">The anchors to encode.</param>
+        /// <returns>The encoded payload.</returns>
+        public static byte[] Encode(IReadOnlyList<AnchorFeedEntry> anchors)
+        {
+            using (MemoryStream output = new MemoryStream(2 + anchors.Count * 20))
+            {
+                output.WriteByte(formatVersion);
+                WriteVarint(output, (ulong)anchors.Count);
+                foreach (AnchorFeedEntry anchor in anchors)
+                {
+                    WriteVarint(output, (ulong)anchor.AnchorNumber);
+                    byte[] guid = TryGetCanonicalGuidBytes(anchor.AnchorKey);
+                    if (guid != null)
+                    {
+                        output.WriteByte(kindGuid);
+                        output.Write(guid, 0, guid.Length);
+                    }
+                    else
+                    {
+                        byte[] key = Encoding.UTF8.GetBytes(anchor.AnchorKey);
+                        output.WriteByte(kindString);
+                        WriteVarint(output, (ulong)key.Length);
+                        output.Write(key, 0, key.Length);
+                    }
+                }
+
+                return output.ToArray();
+            }
+        }
+
+        /// <summary>
+        /// Decodes a payload.
+        /// </summary>
+        /// <param name="payload">The encoded payload.</param>
+        /// <exception cref="InvalidDataException">The payload is malformed.</exception>
+        /// <returns>The decoded anchors.</returns>
+        public static IReadOnlyList<AnchorFeedEntry> Decode(byte[] payload)
+        {
+            using (MemoryStream input = new MemoryStream(payload, false))
+            {
+                if (input.ReadByte() != formatVersion)
+                {
+                    throw new InvalidDataException("Unsupported anchor payload version.");
+                }
+
+                ulong count = ReadVarint(input);
+                if (count > (ulong)(input.Length - input.Position) / 3)
+                {
+                    throw new InvalidDataException("Malformed anchor payload.");
+                }
+
+                List<AnchorFeedEntry> anchors = new List<AnchorFeedEntry>((int)count);
+                for (ulong i = 0; i < count; i++)
+                {
+                    long anchorNumber = (long)ReadVarint(input);
+                    int kind = input.ReadByte();
+                    string anchorKey;
+                    if (kind == kindGuid)
+                    {
+                        anchorKey = FormatGuid(ReadExactly(input, 16));
+                    }
+                    else if (kind == kindString)
+                    {
+                        ulong length = ReadVarint(input);
+                        if (length > (ulong)(input.Length - input.Position))
+                        {
+                            throw new InvalidDataException("Malformed anchor payload.");
+                        }
+
+                        anchorKey = Encoding.UTF8.GetString(ReadExactly(input, (int)length));
+                    }
+                    else
+                    {
+                        throw new InvalidDataException("Unknown anchor key kind.");
+                    }
+
+                    anchors.Add(new AnchorFeedEntry(anchorNumber, anchorKey));
+                }
+
+                return anchors;
+            }
+        }
+
+        /// <summary>
+        /// Compresses a payload with gzip.
+        /// </summary>
+        /// <param name="payload">The payload.</param>
+        /// <returns>The compressed payload.</returns>
+        public static byte[] Gzip(byte[] payload)
+        {
+            using (MemoryStream output = new MemoryStream())
+            {
+                using (GZipStream gzip = new GZipStream(output, CompressionLevel.Fastest, true))
+                {
+                    gzip.Write(payload, 0, payload.Length);
+                }
+
+                return output.ToArray();
+            }
+        }
+
+        // Only keys that survive the round trip exactly are packed as 16 bytes.
+        private static byte[] TryGetCanonicalGuidBytes(string anchorKey)
+        {
+            if (!Guid.TryParseExact(anchorKey, "D", out Guid guid) || guid.ToString("D") != anchorKey)
+            {
+                return null;
+            }
+
+            // Guid.ToByteArray uses a mixed-endian layout, pack the hex digits in textual order instead.
+            string hex = anchorKey.Replace("-", string.Empty);
+            byte[] bytes = new byte[16];
+            for (int i = 0; i < bytes.Length; i++)
+            {
+                bytes[i] = Convert.ToByte(hex.Substring(i * 2, 2), 16);
+            }
+
+            return bytes;
+        }
+
+        private static string FormatGuid(byte[] bytes)
+        {
+            StringBuilder hex = new StringBuilder(36);
+            for (int i = 0; i < bytes.Length; i++)
+            {
+                if (i == 4 || i == 6 || i == 8 || i == 10)
+                {
+                    hex.Append('-');
+                }
+
+                hex.Append(bytes[i].ToString("x2"));
+            }
+
+            return hex.ToString();
+        }
+
+        private static byte[] ReadExactly(Stream input, int count)
+        {
+            byte[] buffer = new byte[count];
+            int offset = 0;
+            while (offset < count)
+            {
+                int read = input.Read(buffer, offset, count - offset);
+                if (read == 0)
+                {
+                    throw new InvalidDataException("Truncated anchor payload.");
+                }
+
+                offset += read;
+            }
+
+            return buffer;
+        }
+
+        private static void WriteVarint(Stream output, ulong value)
+        {
+            while (value >= 0x80)
+            {
+                output.WriteByte((byte)(value | 0x80));
+                value >>= 7;
+            }
+
+            output.WriteByte((byte)value);
+        }
+
+        private static ulong ReadVarint(Stream input)
+        {
+            ulong value = 0;
+            for (int shift = 0; shift < 64; shift += 7)
+            {
+                int b = input.ReadByte();
+                if (b < 0)
+                {
+                    throw new InvalidDataException("Truncated anchor payload.");
+                }
+
+                value |= (ulong)(b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                {
+                    return value;
+                }
+            }
+
+            throw new InvalidDataException("Malformed varint in anchor payload.");
+        }
+    }
+}
@@ -34,6 +34,9 @@ namespace SharingService
             services.AddSingleton<IAnchorKeyCache>(new CosmosDbCache(this.Configuration.GetValue<string>("StorageConnectionString")));
 #endif
 
+            // Register the feed notifying subscribers of newly posted anchors.
+            services.AddSingleton<AnchorFeed>();
+
             // Add an http client
             services.AddHttpClient<SpatialAnchorsTokenService>();
 